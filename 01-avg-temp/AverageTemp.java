@@ -1,3 +1,7 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
 import java.util.Scanner;
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -8,15 +12,64 @@ public class AverageTemp {
 
     // constant for end input
     public static final String END_INPUT = "-end";
+    // command line option for the streaming mode
+    public static final String STREAM_OPTION = "-stream";
+    // command line option for the bulk file mode, "-" reads from stdin
+    public static final String FILE_OPTION = "-file";
+    // arrays longer than this are not printed in full
+    private static final int MAX_PRINTED_VALUES = 100;
 
     public static void main(String[] args) {
         System.out.println("\n*** Welcome to the Temperature Calculator ***");
         
-        // crate a new list to store temperatures (user input)
-        List<Double> tempList = new ArrayList<>();
         // create a new instance of TemperatureInputReader
         TemperatureInputReader reader = new TemperatureInputReader();
 
+        // streaming mode: running statistics only, the values are not kept in memory
+        if (args.length > 0 && args[0].equalsIgnoreCase(STREAM_OPTION)) {
+            runStreaming(reader);
+            return;
+        }
+
+        // bulk file mode or interactive input
+        double[] temperatures = args.length > 1 && args[0].equalsIgnoreCase(FILE_OPTION)
+            ? readFile(args[1])
+            : readInteractive(reader);
+
+        // validate
+        if (temperatures == null || temperatures.length == 0) {  
+            System.out.println("\nNo temperature values were entered, goodbye!\n");
+            return;
+        }
+
+        System.out.println("\nYou entered total of [" + temperatures.length + "] temperatures.");
+        System.out.println("The values are:   " + toPrintableString(temperatures));
+        
+        // no real reason to have a try here, as the input is already validated, but do it anyway
+        try {
+            double sortedTemperatures[] = TemperatureCalculator.sortTemperatures(temperatures);
+            System.out.println("Sorted ascending: " + toPrintableString(sortedTemperatures));
+
+            TemperatureStats stats = TemperatureCalculator.calculateStatistics(temperatures);
+            double medianTemp = TemperatureCalculator.calculateMedianUnsorted(temperatures);
+
+            System.out.println("\n--> Results:");
+            System.out.printf("    Mean (average) temperature:  %.2f degrees\n", stats.getMean());
+            System.out.printf("    Median temperature:          %.2f degrees\n", medianTemp);
+            System.out.printf("    Minimum / maximum:           %.2f / %.2f degrees\n", stats.getMin(), stats.getMax());
+            System.out.printf("    Standard deviation:          %.2f degrees\n", stats.getStandardDeviation());
+            System.out.printf("    Number of values above mean: %d\n\n", stats.getAboveMeanCount());
+        } catch (IllegalArgumentException e) {
+            System.err.println("<!> Error: " + e.getMessage());
+        } 
+
+    }
+
+    // interactive input, one value per line until -end
+    private static double[] readInteractive(TemperatureInputReader reader) {
+        // crate a new list to store temperatures (user input)
+        List<Double> tempList = new ArrayList<>();
+
         // read temperatures
         Double temp;
         int count = 0;
@@ -29,38 +82,66 @@ public class AverageTemp {
             System.out.println("Temperature " + count + " added: " + temp);
         }
 
-        // validate
-        if (tempList.isEmpty()) {  
-            System.out.println("\nNo temperature values were entered, goodbye!\n");
-            return;
-        }
-        
         // convert to a primitive array of doubles
         double[] temperatures = new double[tempList.size()];
         for (int i = 0; i < temperatures.length; i++) {
             temperatures[i] = tempList.get(i);
         }
+        return temperatures;
+    }
 
-        System.out.println("\nYou entered total of [" + temperatures.length + "] temperatures.");
-        System.out.println("The values are:   " + Arrays.toString(temperatures));
-        
-        // no real reason to have a try here, as the input is already validated, but do it anyway
-        try {
-            double sortedTemperatures[] = TemperatureCalculator.sortTemperatures(temperatures);
-            System.out.println("Sorted ascending: " + Arrays.toString(sortedTemperatures));
+    // bulk file mode, values are parsed straight into a primitive array (see TemperatureBulkReader)
+    private static double[] readFile(String path) {
+        TemperatureBulkReader bulkReader = new TemperatureBulkReader();
+        DoubleArrayBuilder values = new DoubleArrayBuilder();
 
-            double meanTemp = TemperatureCalculator.calculateMean(temperatures);
-            double medianTemp = TemperatureCalculator.calculateMedian(sortedTemperatures);
-            int aboveMeanCount = TemperatureCalculator.countAboveMean(temperatures, meanTemp);
+        System.out.println("\nReading temperatures from " + (path.equals("-") ? "standard input" : path) + " ...");
+        try (InputStream in = path.equals("-") ? System.in : new FileInputStream(path)) {
+            bulkReader.readAll(in, values);
+        } catch (IOException e) {
+            System.err.println("<!> Error: cannot read " + path + ": " + e.getMessage());
+            return null;
+        }
 
-            System.out.println("\n--> Results:");
-            System.out.printf("    Mean (average) temperature:  %.2f degrees\n", meanTemp);
-            System.out.printf("    Median temperature:          %.2f degrees\n", medianTemp);
-            System.out.printf("    Number of values above mean: %d\n\n", aboveMeanCount);
-        } catch (IllegalArgumentException e) {
-            System.err.println("<!> Error: " + e.getMessage());
-        } 
+        if (bulkReader.getInvalidTokens() > 0) {
+            System.out.println("Skipped " + bulkReader.getInvalidTokens() + " invalid value(s).");
+        }
+        return values.toArray();
+    }
+
+    // Arrays.toString, shortened for long arrays
+    private static String toPrintableString(double[] values) {
+        if (values.length <= MAX_PRINTED_VALUES) {
+            return Arrays.toString(values);
+        }
+        String head = Arrays.toString(Arrays.copyOf(values, MAX_PRINTED_VALUES));
+        return head.substring(0, head.length() - 1) + ", ... (" + (values.length - MAX_PRINTED_VALUES) + " more)]";
+    }
+
+    // streaming mode, prints the running statistics after every value
+    private static void runStreaming(TemperatureInputReader reader) {
+        StreamingTemperatureStats stats = new StreamingTemperatureStats();
+
+        Double temp;
+        System.out.println("\nStreaming mode, please enter the temperatures below (" + END_INPUT + " to finish):");
 
+        while ((temp = reader.readTemperature("\n--> Value " + (stats.getCount() + 1) + ": ")) != null) {
+            try {
+                stats.add(temp);
+            } catch (IllegalArgumentException e) {
+                System.err.println("<!> Error: " + e.getMessage());
+                continue;
+            }
+            System.out.printf("    count %d, mean %.2f, median %.2f%s, std dev %.2f, min %.2f, max %.2f%n",
+                stats.getCount(), stats.getMean(), stats.getMedian(), stats.isExact() ? "" : " (approx.)",
+                stats.getStandardDeviation(), stats.getMin(), stats.getMax());
+        }
+
+        if (stats.getCount() == 0) {
+            System.out.println("\nNo temperature values were entered, goodbye!\n");
+        } else {
+            System.out.println("\nTotal of [" + stats.getCount() + "] temperatures, goodbye!\n");
+        }
     }
 }
 
@@ -74,21 +155,26 @@ class TemperatureInputReader {
     
     // I need to use Double instead of double to allow null return value
     public Double readTemperature(String message) {
-        System.out.print(message);
-        String input = scanner.nextLine().trim();
-        
-        // return null if user enters -end
-        if (input.equalsIgnoreCase(AverageTemp.END_INPUT)) {
-            return null;
-        }
-        
-        try {
-            return Double.parseDouble(input);
-        } catch (NumberFormatException e) {
-            System.out.println("Invalid input. Please enter a valid number (or " + AverageTemp.END_INPUT + ")");
+        // loop until a valid number is entered (a recursive retry could overflow the stack on long bad input)
+        while (true) {
+            System.out.print(message);
+
+            // end of input (e.g. piped file without -end) works the same as -end
+            if (!scanner.hasNextLine()) {
+                return null;
+            }
+            String input = scanner.nextLine().trim();
             
-            // recursive call to readTemperature to allow user to re-enter
-            return readTemperature(message);
+            // return null if user enters -end
+            if (input.equalsIgnoreCase(AverageTemp.END_INPUT)) {
+                return null;
+            }
+            
+            try {
+                return Double.parseDouble(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a valid number (or " + AverageTemp.END_INPUT + ")");
+            }
         }
     }
 }
@@ -122,6 +208,103 @@ class TemperatureCalculator {
         return count;
     }
 
+    // mean of a buffer, e.g. a file mapped with TemperatureFile.mapDoubles (nothing is copied to the heap)
+    public static double calculateMean(DoubleBuffer temperatures) {
+
+        validateTemperatureBuffer(temperatures);
+
+        double sum = 0;
+        int n = temperatures.limit();
+        for (int i = 0; i < n; i++) {
+            sum += temperatures.get(i);
+        }
+        return sum / n;
+    }
+
+    // count above mean for a buffer
+    public static int countAboveMean(DoubleBuffer temperatures, double mean) {
+
+        validateTemperatureBuffer(temperatures);
+
+        int count = 0;
+        int n = temperatures.limit();
+        for (int i = 0; i < n; i++) {
+            if (temperatures.get(i) > mean) count++;
+        }
+        return count;
+    }
+
+    // mean of a series mapped in chunks (TemperatureFile.mapDoubleChunks), any number of values
+    public static double calculateMean(DoubleBuffer[] chunks) {
+
+        long n = validateTemperatureChunks(chunks);
+
+        double sum = 0;
+        for (DoubleBuffer chunk : chunks) {
+            int limit = chunk.limit();
+            for (int i = 0; i < limit; i++) {
+                sum += chunk.get(i);
+            }
+        }
+        return sum / n;
+    }
+
+    // count above mean for a series mapped in chunks (can be more than an int holds)
+    public static long countAboveMean(DoubleBuffer[] chunks, double mean) {
+
+        validateTemperatureChunks(chunks);
+
+        long count = 0;
+        for (DoubleBuffer chunk : chunks) {
+            int limit = chunk.limit();
+            for (int i = 0; i < limit; i++) {
+                if (chunk.get(i) > mean) count++;
+            }
+        }
+        return count;
+    }
+
+    // median of a series mapped in chunks, the values are copied into one heap array (the chunks are not changed)
+    public static double calculateMedianUnsorted(DoubleBuffer[] chunks) {
+
+        long n = validateTemperatureChunks(chunks);
+        if (n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many values for a median on the heap: " + n);
+        }
+
+        double[] values = new double[(int) n];
+        int offset = 0;
+        for (DoubleBuffer chunk : chunks) {
+            chunk.get(0, values, offset, chunk.limit());
+            offset += chunk.limit();
+        }
+        return TemperatureSelector.median(values);
+    }
+
+    // median of a buffer using selection
+    // allowReorder = true lets a writable heap buffer be reordered in place, every other buffer (direct, mapped,
+    // read-only) is left untouched and its values are copied to a heap array first
+    public static double calculateMedianUnsorted(DoubleBuffer temperatures, boolean allowReorder) {
+
+        validateTemperatureBuffer(temperatures);
+
+        if (allowReorder && !temperatures.isReadOnly()) {
+            return TemperatureSelector.median(temperatures);
+        }
+        double[] values = new double[temperatures.limit()];
+        temperatures.get(0, values);
+        return TemperatureSelector.median(values);
+    }
+
+    // all summary statistics (mean, min, max, variance, count above mean) in one fused kernel,
+    // instead of a separate pass over the array for each of them
+    public static TemperatureStats calculateStatistics(double[] temperatures) {
+
+        validateTemperatureList(temperatures);
+
+        return TemperatureStats.of(temperatures);
+    }
+
     // overload to ascending sort to be default
     public static double[] sortTemperatures(double[] temperatures) {
         return sortTemperatures(temperatures, false);
@@ -129,31 +312,19 @@ class TemperatureCalculator {
 
     // sort with order control
     public static double[] sortTemperatures(double[] temperatures, boolean descending) {
+        return sortTemperatures(temperatures, descending, TemperatureSorter.Algorithm.AUTO);
+    }
+
+    // sort with order control and explicit sort algorithm, the input array is not modified
+    public static double[] sortTemperatures(double[] temperatures, boolean descending, TemperatureSorter.Algorithm algorithm) {
         
         validateTemperatureList(temperatures);
         
         // make a copy of the array
         double[] sorted = Arrays.copyOf(temperatures, temperatures.length);
 
-        int n = sorted.length;
-
-        // bubble sort, proably not optimal, but simple classic sort algorithm
-        for (int i = 0; i < n-1; i++) {
-            for (int j = 0; j < n-i-1; j++) {
-                boolean shouldSwap = descending ? 
-                    // descending
-                    (sorted[j] < sorted[j+1]) : 
-                    // ascending
-                    (sorted[j] > sorted[j+1]); 
-                    
-                if (shouldSwap) {
-                    // swap elements
-                    double temp = sorted[j];
-                    sorted[j] = sorted[j+1];
-                    sorted[j+1] =  temp;
-                }
-            }
-        }
+        // sort the copy in place, the sort engine picks the algorithm by array size
+        TemperatureSorter.sort(sorted, descending, algorithm);
 
         return sorted;
     }
@@ -174,6 +345,35 @@ class TemperatureCalculator {
         }
     }
 
+    // median without sorting, the input array is left untouched (works on a copy)
+    public static double calculateMedianUnsorted(double[] temperatures) {
+        return calculateMedianUnsorted(temperatures, false);
+    }
+
+    // median without sorting, in expected O(n) using selection
+    // allowReorder = true works directly on the given array (reorders it, no scratch array allocated)
+    public static double calculateMedianUnsorted(double[] temperatures, boolean allowReorder) {
+
+        validateTemperatureList(temperatures);
+
+        double[] values = allowReorder ? temperatures : Arrays.copyOf(temperatures, temperatures.length);
+        return TemperatureSelector.median(values);
+    }
+
+    // k-th smallest temperature (0-based), the input array is left untouched (works on a copy)
+    public static double kthTemperature(double[] temperatures, int k) {
+        return kthTemperature(temperatures, k, false);
+    }
+
+    // k-th smallest temperature (0-based) using selection, allowReorder works as for the median
+    public static double kthTemperature(double[] temperatures, int k, boolean allowReorder) {
+
+        validateTemperatureList(temperatures);
+
+        double[] values = allowReorder ? temperatures : Arrays.copyOf(temperatures, temperatures.length);
+        return TemperatureSelector.select(values, k);
+    }
+
     // method to validate the temperature list
     private static void validateTemperatureList(double[] temperatures) {
         if (temperatures == null || temperatures.length == 0) {
@@ -181,4 +381,29 @@ class TemperatureCalculator {
         }
     }
 
+    // same for buffers, the values used are [0, limit)
+    private static void validateTemperatureBuffer(DoubleBuffer temperatures) {
+        if (temperatures == null || temperatures.limit() == 0) {
+            throw new IllegalArgumentException(ERROR_MESSAGE);
+        }
+    }
+
+    // same for chunks, returns the total number of values
+    private static long validateTemperatureChunks(DoubleBuffer[] chunks) {
+        if (chunks == null) {
+            throw new IllegalArgumentException(ERROR_MESSAGE);
+        }
+        long n = 0;
+        for (DoubleBuffer chunk : chunks) {
+            if (chunk == null) {
+                throw new IllegalArgumentException(ERROR_MESSAGE);
+            }
+            n += chunk.limit();
+        }
+        if (n == 0) {
+            throw new IllegalArgumentException(ERROR_MESSAGE);
+        }
+        return n;
+    }
+
 }
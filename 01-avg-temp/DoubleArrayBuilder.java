@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+// growable array of primitive doubles, like ArrayList<Double> without boxing every value
+public class DoubleArrayBuilder {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private double[] values;
+    private int size;
+
+    // constructor with default capacity
+    public DoubleArrayBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // constructor with initial capacity
+    public DoubleArrayBuilder(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+        this.values = new double[Math.max(initialCapacity, 1)];
+        this.size = 0;
+    }
+
+    // add a value at the end, grows the backing array by 1.5x when full
+    public void add(double value) {
+        if (this.size == this.values.length) {
+            grow(this.size + 1);
+        }
+        this.values[this.size++] = value;
+    }
+
+    // value getter by position (0-based)
+    public double get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid position: " + index);
+        }
+        return this.values[index];
+    }
+
+    // number of values added
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    // remove all values, keeps the backing array for reuse
+    public void clear() {
+        this.size = 0;
+    }
+
+    // backing array, only the first size() values are valid, no copy is made
+    public double[] rawArray() {
+        return this.values;
+    }
+
+    // copy of the values, exactly size() long
+    public double[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    private void grow(int minCapacity) {
+        long newCapacity = Math.max(minCapacity, this.values.length + (this.values.length >> 1));
+        if (newCapacity > Integer.MAX_VALUE - 8) {
+            if (minCapacity > Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("Too many values");
+            }
+            newCapacity = Integer.MAX_VALUE - 8;
+        }
+        this.values = Arrays.copyOf(this.values, (int) newCapacity);
+    }
+}
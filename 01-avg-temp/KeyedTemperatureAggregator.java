@@ -0,0 +1,321 @@
+import java.util.Arrays;
+
+// per-sensor statistics for many sensors (tens of thousands), sensor id -> mean, median, count above mean
+// everything is kept in primitive arrays so the number of objects does not grow with sensors or values:
+//  - sensor ids are mapped to dense indexes by an open-addressing long -> int hash map (linear probing)
+//  - per-sensor running values are struct-of-arrays (count[i], mean[i], m2[i], min[i], max[i])
+//  - the values themselves (needed for median and count above mean) are appended to a shared block pool,
+//    every sensor has a linked chain of fixed size blocks (next block index in blockNext)
+// typical use: ingest batches, take a snapshot, clear() and start the next batch (arrays are reused)
+public class KeyedTemperatureAggregator {
+
+    private static final int BLOCK_SIZE = 32;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final int INITIAL_SENSORS = 1024;
+
+    // id -> index map, capacity is a power of two, load factor <= 0.5
+    private long[] mapKeys;
+    private int[] mapValues;
+    private int mapMask;
+
+    // per-sensor state, index = dense sensor index
+    private long[] sensorIds;
+    private int[] counts;
+    private double[] means;
+    private double[] m2s;
+    private double[] mins;
+    private double[] maxs;
+    private int[] firstBlock;
+    private int[] lastBlock;
+    private int sensorCount;
+
+    // block pool for the raw values
+    private double[] blockValues;
+    private int[] blockNext;
+    private int blockCount;
+
+    // scratch array for median selection, grows to the largest sensor
+    private double[] scratch = new double[BLOCK_SIZE];
+
+    // constructor
+    public KeyedTemperatureAggregator() {
+        this.mapKeys = new long[INITIAL_SENSORS * 2];
+        Arrays.fill(this.mapKeys, EMPTY_KEY);
+        this.mapValues = new int[INITIAL_SENSORS * 2];
+        this.mapMask = this.mapKeys.length - 1;
+
+        this.sensorIds = new long[INITIAL_SENSORS];
+        this.counts = new int[INITIAL_SENSORS];
+        this.means = new double[INITIAL_SENSORS];
+        this.m2s = new double[INITIAL_SENSORS];
+        this.mins = new double[INITIAL_SENSORS];
+        this.maxs = new double[INITIAL_SENSORS];
+        this.firstBlock = new int[INITIAL_SENSORS];
+        this.lastBlock = new int[INITIAL_SENSORS];
+
+        this.blockValues = new double[INITIAL_SENSORS * BLOCK_SIZE];
+        this.blockNext = new int[INITIAL_SENSORS];
+    }
+
+    // add one reading
+    public void add(long sensorId, double temperature) {
+        if (sensorId == EMPTY_KEY) {
+            throw new IllegalArgumentException("Invalid sensor id: " + sensorId);
+        }
+        if (Double.isNaN(temperature)) {
+            throw new IllegalArgumentException("Temperature cannot be NaN");
+        }
+
+        int sensor = indexOf(sensorId);
+        int n = this.counts[sensor];
+
+        // append the raw value, a new block every BLOCK_SIZE values
+        if (n % BLOCK_SIZE == 0) {
+            int block = newBlock();
+            if (n == 0) {
+                this.firstBlock[sensor] = block;
+            } else {
+                this.blockNext[this.lastBlock[sensor]] = block;
+            }
+            this.lastBlock[sensor] = block;
+        }
+        this.blockValues[this.lastBlock[sensor] * BLOCK_SIZE + n % BLOCK_SIZE] = temperature;
+
+        // Welford update
+        n++;
+        this.counts[sensor] = n;
+        double delta = temperature - this.means[sensor];
+        this.means[sensor] += delta / n;
+        this.m2s[sensor] += delta * (temperature - this.means[sensor]);
+        this.mins[sensor] = n == 1 ? temperature : Math.min(this.mins[sensor], temperature);
+        this.maxs[sensor] = n == 1 ? temperature : Math.max(this.maxs[sensor], temperature);
+    }
+
+    // batch ingest of (sensorIds[i], temperatures[i]) pairs for i in [0, length)
+    public void addAll(long[] sensorIds, double[] temperatures, int length) {
+        if (sensorIds.length < length || temperatures.length < length) {
+            throw new IllegalArgumentException("Arrays are shorter than " + length);
+        }
+        for (int i = 0; i < length; i++) {
+            add(sensorIds[i], temperatures[i]);
+        }
+    }
+
+    // number of sensors seen since the last clear()
+    public int getSensorCount() {
+        return this.sensorCount;
+    }
+
+    // mean of one sensor, NaN if unknown
+    public double getMean(long sensorId) {
+        int sensor = find(sensorId);
+        return sensor < 0 ? Double.NaN : this.means[sensor];
+    }
+
+    // number of readings of one sensor, 0 if unknown
+    public int getCount(long sensorId) {
+        int sensor = find(sensorId);
+        return sensor < 0 ? 0 : this.counts[sensor];
+    }
+
+    // forget all sensors and values, the arrays are kept so the next batch does not allocate
+    public void clear() {
+        Arrays.fill(this.mapKeys, EMPTY_KEY);
+        this.sensorCount = 0;
+        this.blockCount = 0;
+    }
+
+    // ================ snapshot ================
+    // statistics of every sensor, as parallel arrays (index i = one sensor)
+    public static class Snapshot {
+        private int size;
+        private long[] sensorIds = new long[0];
+        private int[] counts = new int[0];
+        private double[] means = new double[0];
+        private double[] variances = new double[0];
+        private double[] mins = new double[0];
+        private double[] maxs = new double[0];
+        private double[] medians = new double[0];
+        private int[] aboveMeanCounts = new int[0];
+
+        private void resize(int size) {
+            this.size = size;
+            if (this.sensorIds.length < size) {
+                this.sensorIds = new long[size];
+                this.counts = new int[size];
+                this.means = new double[size];
+                this.variances = new double[size];
+                this.mins = new double[size];
+                this.maxs = new double[size];
+                this.medians = new double[size];
+                this.aboveMeanCounts = new int[size];
+            }
+        }
+
+        // number of sensors, only the first size() entries of the arrays are valid
+        public int size() {
+            return this.size;
+        }
+
+        public long getSensorId(int i) {
+            return this.sensorIds[i];
+        }
+
+        public int getCount(int i) {
+            return this.counts[i];
+        }
+
+        public double getMean(int i) {
+            return this.means[i];
+        }
+
+        // population variance
+        public double getVariance(int i) {
+            return this.variances[i];
+        }
+
+        public double getMin(int i) {
+            return this.mins[i];
+        }
+
+        public double getMax(int i) {
+            return this.maxs[i];
+        }
+
+        public double getMedian(int i) {
+            return this.medians[i];
+        }
+
+        public int getAboveMeanCount(int i) {
+            return this.aboveMeanCounts[i];
+        }
+    }
+
+    // new snapshot of all sensors
+    public Snapshot snapshot() {
+        return snapshot(null);
+    }
+
+    // snapshot into an existing one (reuses its arrays when they are large enough), null creates a new one
+    public Snapshot snapshot(Snapshot reuse) {
+        Snapshot result = reuse != null ? reuse : new Snapshot();
+        result.resize(this.sensorCount);
+
+        for (int sensor = 0; sensor < this.sensorCount; sensor++) {
+            int n = this.counts[sensor];
+            double mean = this.means[sensor];
+
+            // gather the sensor's values into the scratch array (it is reordered by the median selection)
+            if (this.scratch.length < n) {
+                this.scratch = new double[Math.max(n, this.scratch.length * 2)];
+            }
+            int gathered = 0;
+            for (int block = this.firstBlock[sensor]; gathered < n; block = this.blockNext[block]) {
+                int length = Math.min(BLOCK_SIZE, n - gathered);
+                System.arraycopy(this.blockValues, block * BLOCK_SIZE, this.scratch, gathered, length);
+                gathered += length;
+            }
+
+            int above = 0;
+            for (int i = 0; i < n; i++) {
+                above += this.scratch[i] > mean ? 1 : 0;
+            }
+
+            result.sensorIds[sensor] = this.sensorIds[sensor];
+            result.counts[sensor] = n;
+            result.means[sensor] = mean;
+            result.variances[sensor] = this.m2s[sensor] / n;
+            result.mins[sensor] = this.mins[sensor];
+            result.maxs[sensor] = this.maxs[sensor];
+            result.aboveMeanCounts[sensor] = above;
+            result.medians[sensor] = TemperatureSelector.median(this.scratch, 0, n);
+        }
+        return result;
+    }
+
+    // ================ id -> index map ================
+    private int find(long sensorId) {
+        int slot = hash(sensorId) & this.mapMask;
+        while (this.mapKeys[slot] != EMPTY_KEY) {
+            if (this.mapKeys[slot] == sensorId) return this.mapValues[slot];
+            slot = (slot + 1) & this.mapMask;
+        }
+        return -1;
+    }
+
+    // index of the sensor, adds a new sensor if needed
+    private int indexOf(long sensorId) {
+        int slot = hash(sensorId) & this.mapMask;
+        while (this.mapKeys[slot] != EMPTY_KEY) {
+            if (this.mapKeys[slot] == sensorId) return this.mapValues[slot];
+            slot = (slot + 1) & this.mapMask;
+        }
+
+        int sensor = this.sensorCount++;
+        if (sensor == this.sensorIds.length) {
+            growSensors();
+        }
+        this.sensorIds[sensor] = sensorId;
+        this.counts[sensor] = 0;
+        this.means[sensor] = 0;
+        this.m2s[sensor] = 0;
+
+        this.mapKeys[slot] = sensorId;
+        this.mapValues[slot] = sensor;
+        if (this.sensorCount * 2 > this.mapKeys.length) {
+            rehash();
+        }
+        return sensor;
+    }
+
+    private void rehash() {
+        long[] oldKeys = this.mapKeys;
+        int[] oldValues = this.mapValues;
+        this.mapKeys = new long[oldKeys.length * 2];
+        Arrays.fill(this.mapKeys, EMPTY_KEY);
+        this.mapValues = new int[oldValues.length * 2];
+        this.mapMask = this.mapKeys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY) continue;
+            int slot = hash(oldKeys[i]) & this.mapMask;
+            while (this.mapKeys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & this.mapMask;
+            }
+            this.mapKeys[slot] = oldKeys[i];
+            this.mapValues[slot] = oldValues[i];
+        }
+    }
+
+    // mix the bits so sequential ids spread over the table (murmur3 finalizer)
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    // ================ storage growth ================
+    private void growSensors() {
+        int capacity = this.sensorIds.length * 2;
+        this.sensorIds = Arrays.copyOf(this.sensorIds, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.means = Arrays.copyOf(this.means, capacity);
+        this.m2s = Arrays.copyOf(this.m2s, capacity);
+        this.mins = Arrays.copyOf(this.mins, capacity);
+        this.maxs = Arrays.copyOf(this.maxs, capacity);
+        this.firstBlock = Arrays.copyOf(this.firstBlock, capacity);
+        this.lastBlock = Arrays.copyOf(this.lastBlock, capacity);
+    }
+
+    private int newBlock() {
+        if (this.blockCount == this.blockNext.length) {
+            int capacity = this.blockNext.length * 2;
+            this.blockNext = Arrays.copyOf(this.blockNext, capacity);
+            this.blockValues = Arrays.copyOf(this.blockValues, capacity * BLOCK_SIZE);
+        }
+        return this.blockCount++;
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// fork-join versions of the TemperatureCalculator operations for very large arrays
+// the array is always split at the same points (halves, down to the split threshold) and the partial
+// results are combined in the same tree order, so the result does not depend on thread timing:
+// the same input gives bit-for-bit the same mean on every run, with any number of threads
+// inputs below the split threshold go straight to the sequential TemperatureCalculator methods
+public class ParallelTemperatureCalculator {
+
+    // default leaf size, large enough that task overhead does not matter
+    public static final int DEFAULT_SPLIT_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+
+    // constructor with the common pool and default threshold
+    public ParallelTemperatureCalculator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    // constructor with a specific pool and leaf size
+    public ParallelTemperatureCalculator(ForkJoinPool pool, int splitThreshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (splitThreshold < 1) {
+            throw new IllegalArgumentException("Invalid split threshold: " + splitThreshold);
+        }
+        this.pool = pool;
+        this.splitThreshold = splitThreshold;
+    }
+
+    // getter for the split threshold
+    public int getSplitThreshold() {
+        return this.splitThreshold;
+    }
+
+    // mean, leaves use a compensated sum and partial sums are combined pairwise
+    public double calculateMean(double[] temperatures) {
+        if (isSmall(temperatures)) {
+            return TemperatureCalculator.calculateMean(temperatures);
+        }
+        double[] sum = this.pool.invoke(new SumTask(temperatures, 0, temperatures.length, this.splitThreshold));
+        return (sum[0] + sum[1]) / temperatures.length;
+    }
+
+    // count of values above the given mean
+    public int countAboveMean(double[] temperatures, double mean) {
+        if (isSmall(temperatures)) {
+            return TemperatureCalculator.countAboveMean(temperatures, mean);
+        }
+        return this.pool.invoke(new CountAboveTask(temperatures, 0, temperatures.length, mean, this.splitThreshold));
+    }
+
+    // sorted copy, parallel merge sort in this calculator's pool, the split threshold is the leaf size
+    public double[] sortTemperatures(double[] temperatures, boolean descending) {
+        if (isSmall(temperatures)) {
+            return TemperatureCalculator.sortTemperatures(temperatures, descending);
+        }
+        double[] sorted = Arrays.copyOf(temperatures, temperatures.length);
+        TemperatureSorter.sortParallel(sorted, 0, sorted.length, this.pool, this.splitThreshold);
+        if (descending) {
+            TemperatureSorter.reverse(sorted, 0, sorted.length);
+        }
+        return sorted;
+    }
+
+    // small (or invalid) input, the sequential methods handle it and do the validation
+    private boolean isSmall(double[] temperatures) {
+        return temperatures == null || temperatures.length <= this.splitThreshold;
+    }
+
+    // ================ tasks ================
+    // returns {sum, compensation} of values[from, to)
+    private static class SumTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SumTask(double[] values, int from, int to, int threshold) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= threshold) {
+                // Kahan summation of the leaf
+                double sum = 0;
+                double compensation = 0;
+                for (int i = from; i < to; i++) {
+                    double y = values[i] - compensation;
+                    double t = sum + y;
+                    compensation = (t - sum) - y;
+                    sum = t;
+                }
+                return new double[]{sum, -compensation};
+            }
+
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(values, from, middle, threshold);
+            SumTask right = new SumTask(values, middle, to, threshold);
+            left.fork();
+            double[] rightSum = right.compute();
+            double[] leftSum = left.join();
+
+            // always left + right, whichever finished first
+            double sum = leftSum[0] + rightSum[0];
+            double error = Math.abs(leftSum[0]) >= Math.abs(rightSum[0])
+                ? (leftSum[0] - sum) + rightSum[0]
+                : (rightSum[0] - sum) + leftSum[0];
+            return new double[]{sum, leftSum[1] + rightSum[1] + error};
+        }
+    }
+
+    private static class CountAboveTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final double mean;
+        private final int threshold;
+
+        CountAboveTask(double[] values, int from, int to, double mean, int threshold) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.mean = mean;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= threshold) {
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (values[i] > mean) count++;
+                }
+                return count;
+            }
+
+            int middle = (from + to) >>> 1;
+            CountAboveTask left = new CountAboveTask(values, from, middle, mean, threshold);
+            CountAboveTask right = new CountAboveTask(values, middle, to, mean, threshold);
+            left.fork();
+            int rightCount = right.compute();
+            return left.join() + rightCount;
+        }
+    }
+}
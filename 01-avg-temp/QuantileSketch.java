@@ -0,0 +1,237 @@
+import java.util.Arrays;
+
+// mergeable quantile sketch (KLL, Karnin-Lang-Liberty) over primitive doubles
+// keeps O(k) values no matter how many were added: values live in levels (compactors), a value in
+// level h stands for 2^h original values, and a full level is sorted and every other value is promoted
+// to the next level (randomly the odd or the even ones)
+// the rank error is about 1.65% of n for k = 200 (99% of the time), and goes down roughly as 1/k
+// while nothing was compacted yet (fewer than k values, the k-th add compacts) the sketch is exact
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    // capacity of level h is about k * (2/3)^(depth), so the total size stays below 3k
+    private static final double LEVEL_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final int k;
+    private double[][] levels;
+    private int[] levelSizes;
+    private int levelCount;
+    private int retained;
+    private int maxRetained;
+    private long count;
+    private boolean compacted;
+
+    // xorshift state for the odd/even choice, fixed seed so runs are reproducible
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    // constructor with the default accuracy
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    // constructor, larger k = more accurate and more memory
+    public QuantileSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        this.levels = new double[4][];
+        this.levelSizes = new int[4];
+        this.levelCount = 0;
+        addLevel();
+    }
+
+    // add one value, NaN values are ignored
+    public void add(double value) {
+        if (value != value) return;
+
+        appendToLevel(0, value);
+        this.count++;
+        this.retained++;
+        if (this.retained >= this.maxRetained) {
+            compress();
+        }
+    }
+
+    // add values[from, to)
+    public void addAll(double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(values[i]);
+        }
+    }
+
+    // merge another sketch into this one, the other sketch is not changed
+    public void merge(QuantileSketch other) {
+        if (other == null || other.count == 0) return;
+
+        while (this.levelCount < other.levelCount) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levelCount; h++) {
+            for (int i = 0; i < other.levelSizes[h]; i++) {
+                appendToLevel(h, other.levels[h][i]);
+            }
+        }
+        this.count += other.count;
+        this.retained += other.retained;
+        this.compacted |= other.compacted;
+        while (this.retained >= this.maxRetained) {
+            compress();
+        }
+    }
+
+    // number of values added (NaNs not counted)
+    public long getCount() {
+        return this.count;
+    }
+
+    // true while the sketch still holds every value, quantiles are exact then
+    public boolean isExact() {
+        return !this.compacted;
+    }
+
+    // number of values kept in memory
+    public int getRetained() {
+        return this.retained;
+    }
+
+    // quantile for q in [0, 1], NaN if nothing was added
+    // exact sketches interpolate between neighbours like TemperatureCalculator.calculateMedian does,
+    // so getQuantile(0.5) gives the same median while the sketch is exact
+    public double getQuantile(double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (this.count == 0) return Double.NaN;
+
+        if (isExact()) {
+            double[] values = Arrays.copyOf(this.levels[0], this.levelSizes[0]);
+            double position = q * (values.length - 1);
+            int lower = (int) Math.floor(position);
+            int upper = (int) Math.ceil(position);
+            double low = TemperatureSelector.select(values, 0, values.length, lower);
+            if (upper == lower) return low;
+            // after the select everything from upper on is >= low, the upper neighbour is the smallest of them
+            double high = values[upper];
+            for (int i = upper + 1; i < values.length; i++) {
+                if (values[i] < high) high = values[i];
+            }
+            return low + (high - low) * (position - lower);
+        }
+
+        // weighted nearest rank over the sorted levels
+        double[][] sorted = sortedLevels();
+        int[] positions = new int[this.levelCount];
+        long target = Math.max(1, (long) Math.ceil(q * this.count));
+        long seen = 0;
+        double last = Double.NaN;
+        while (true) {
+            int best = -1;
+            for (int h = 0; h < this.levelCount; h++) {
+                if (positions[h] < sorted[h].length && (best < 0 || sorted[h][positions[h]] < sorted[best][positions[best]])) {
+                    best = h;
+                }
+            }
+            if (best < 0) return last;
+            last = sorted[best][positions[best]++];
+            seen += 1L << best;
+            if (seen >= target) return last;
+        }
+    }
+
+    // approximate number of added values <= value
+    public long getRank(double value) {
+        long rank = 0;
+        for (int h = 0; h < this.levelCount; h++) {
+            for (int i = 0; i < this.levelSizes[h]; i++) {
+                if (this.levels[h][i] <= value) rank += 1L << h;
+            }
+        }
+        // compaction can round the total weight up or down a little
+        return Math.min(rank, this.count);
+    }
+
+    // ================ compaction ================
+    // compact the first level that is over its capacity
+    private void compress() {
+        for (int h = 0; h < this.levelCount; h++) {
+            if (this.levelSizes[h] >= capacity(h)) {
+                if (h + 1 >= this.levelCount) {
+                    addLevel();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    // sort level h, promote every other value to level h + 1, keep the odd one out (if any)
+    private void compact(int h) {
+        double[] level = this.levels[h];
+        int size = this.levelSizes[h];
+        TemperatureSorter.sort(level, 0, size);
+
+        // odd count, the largest value stays in this level
+        int pairs = size / 2;
+        int offset = nextRandomBit();
+        for (int i = 0; i < pairs; i++) {
+            appendToLevel(h + 1, level[2 * i + offset]);
+        }
+        if (size % 2 == 1) {
+            level[0] = level[size - 1];
+            this.levelSizes[h] = 1;
+        } else {
+            this.levelSizes[h] = 0;
+        }
+        this.retained -= pairs;
+        this.compacted = true;
+    }
+
+    private void addLevel() {
+        if (this.levelCount == this.levels.length) {
+            this.levels = Arrays.copyOf(this.levels, this.levelCount * 2);
+            this.levelSizes = Arrays.copyOf(this.levelSizes, this.levelCount * 2);
+        }
+        this.levels[this.levelCount] = new double[MIN_LEVEL_CAPACITY];
+        this.levelCount++;
+
+        int total = 0;
+        for (int h = 0; h < this.levelCount; h++) {
+            total += capacity(h);
+        }
+        this.maxRetained = total;
+    }
+
+    // capacity of level h, the top level gets k and every level below 2/3 of the one above
+    private int capacity(int h) {
+        int depth = this.levelCount - h - 1;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(this.k * Math.pow(LEVEL_DECAY, depth)));
+    }
+
+    private void appendToLevel(int h, double value) {
+        if (this.levelSizes[h] == this.levels[h].length) {
+            this.levels[h] = Arrays.copyOf(this.levels[h], this.levels[h].length * 2);
+        }
+        this.levels[h][this.levelSizes[h]++] = value;
+    }
+
+    private double[][] sortedLevels() {
+        double[][] sorted = new double[this.levelCount][];
+        for (int h = 0; h < this.levelCount; h++) {
+            sorted[h] = Arrays.copyOf(this.levels[h], this.levelSizes[h]);
+            TemperatureSorter.sort(sorted[h]);
+        }
+        return sorted;
+    }
+
+    private int nextRandomBit() {
+        long x = this.randomState;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        this.randomState = x;
+        return (int) (x >>> 63);
+    }
+}
@@ -0,0 +1,138 @@
+// running statistics for an unbounded stream of temperatures, memory does not grow with the input
+// mean and variance are exact (Welford updates, Chan's formula to combine batches and streams),
+// median and percentiles come from a QuantileSketch: they match TemperatureCalculator exactly
+// while fewer than k values (200 by default) were added, after that the rank error is about 1.65% of the count
+public class StreamingTemperatureStats {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final QuantileSketch sketch;
+
+    // constructor with the default sketch accuracy
+    public StreamingTemperatureStats() {
+        this(QuantileSketch.DEFAULT_K);
+    }
+
+    // constructor, sketchK is the accuracy/memory trade-off of the quantile sketch
+    public StreamingTemperatureStats(int sketchK) {
+        this.sketch = new QuantileSketch(sketchK);
+    }
+
+    // add one temperature (Welford update)
+    public void add(double temperature) {
+        validateTemperature(temperature);
+
+        this.count++;
+        double delta = temperature - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (temperature - this.mean);
+        this.min = Math.min(this.min, temperature);
+        this.max = Math.max(this.max, temperature);
+        this.sketch.add(temperature);
+    }
+
+    // add a whole batch
+    public void addAll(double[] temperatures) {
+        addAll(temperatures, 0, temperatures.length);
+    }
+
+    // add temperatures[from, to): batch mean and variance first, then combined with the running values
+    public void addAll(double[] temperatures, int from, int to) {
+        int n = to - from;
+        if (n <= 0) return;
+
+        double batchSum = 0;
+        double batchMin = Double.POSITIVE_INFINITY;
+        double batchMax = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            validateTemperature(temperatures[i]);
+            batchSum += temperatures[i];
+            batchMin = Math.min(batchMin, temperatures[i]);
+            batchMax = Math.max(batchMax, temperatures[i]);
+        }
+        double batchMean = batchSum / n;
+        double batchM2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = temperatures[i] - batchMean;
+            batchM2 += d * d;
+        }
+
+        combine(n, batchMean, batchM2, batchMin, batchMax);
+        this.sketch.addAll(temperatures, from, to);
+    }
+
+    // merge another stream into this one (e.g. partial results from several threads or machines)
+    public void merge(StreamingTemperatureStats other) {
+        if (other == null || other.count == 0) return;
+
+        combine(other.count, other.mean, other.m2, other.min, other.max);
+        this.sketch.merge(other.sketch);
+    }
+
+    // Chan's parallel formula to combine two sets of mean/m2
+    private void combine(long otherCount, double otherMean, double otherM2, double otherMin, double otherMax) {
+        long total = this.count + otherCount;
+        double delta = otherMean - this.mean;
+        this.mean += delta * otherCount / total;
+        this.m2 += otherM2 + delta * delta * ((double) this.count * otherCount / total);
+        this.count = total;
+        this.min = Math.min(this.min, otherMin);
+        this.max = Math.max(this.max, otherMax);
+    }
+
+    // getters, NaN when nothing was added yet
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getMean() {
+        return this.count > 0 ? this.mean : Double.NaN;
+    }
+
+    // population variance, same as TemperatureStats.getVariance
+    public double getVariance() {
+        return this.count > 0 ? this.m2 / this.count : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return this.count > 0 ? this.min : Double.NaN;
+    }
+
+    public double getMax() {
+        return this.count > 0 ? this.max : Double.NaN;
+    }
+
+    // median, exact while isExact() is true
+    public double getMedian() {
+        return this.sketch.getQuantile(0.5);
+    }
+
+    // percentile in [0, 100]
+    public double getPercentile(double percentile) {
+        return this.sketch.getQuantile(percentile / 100.0);
+    }
+
+    // number of values above the running mean, estimated from the sketch (exact while isExact() is true)
+    public long getAboveMeanCount() {
+        return this.count > 0 ? this.count - this.sketch.getRank(this.mean) : 0;
+    }
+
+    // true while the median, percentiles and count above mean are exact
+    public boolean isExact() {
+        return this.sketch.isExact();
+    }
+
+    // NaN would poison the running mean, same rule as the console input (only valid numbers)
+    private static void validateTemperature(double temperature) {
+        if (Double.isNaN(temperature)) {
+            throw new IllegalArgumentException("Temperature cannot be NaN");
+        }
+    }
+}
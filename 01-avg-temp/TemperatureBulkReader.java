@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+// bulk reader for large temperature inputs (files or piped stdin)
+// values are separated by newlines, commas, semicolons, spaces or tabs, reading stops at -end (or end of input)
+// numbers are parsed straight from the byte buffer into a DoubleArrayBuilder, no String or Double per value
+// invalid tokens are skipped and counted, in a loop (no recursion, so long runs of bad input are fine)
+public class TemperatureBulkReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // longer tokens cannot be a sensible temperature, they are counted as invalid
+    private static final int MAX_TOKEN_LENGTH = 64;
+    // largest exact powers of ten as a double, used by the fast parse path
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] token = new byte[MAX_TOKEN_LENGTH];
+    private long invalidTokens;
+    private boolean endReached;
+
+    // read every value from the stream into the builder, returns the number of values added
+    // the stream is not closed
+    public int readAll(InputStream in, DoubleArrayBuilder target) throws IOException {
+        int added = 0;
+        int tokenLength = 0;
+        boolean tokenTooLong = false;
+        this.endReached = false;
+
+        int read;
+        while (!this.endReached && (read = in.read(this.buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                byte b = this.buffer[i];
+                if (isSeparator(b)) {
+                    if (tokenLength > 0 || tokenTooLong) {
+                        added += handleToken(tokenLength, tokenTooLong, target);
+                        tokenLength = 0;
+                        tokenTooLong = false;
+                        if (this.endReached) break;
+                    }
+                } else if (tokenLength < MAX_TOKEN_LENGTH) {
+                    this.token[tokenLength++] = b;
+                } else {
+                    tokenTooLong = true;
+                }
+            }
+        }
+
+        // last token without a trailing separator
+        if (!this.endReached && (tokenLength > 0 || tokenTooLong)) {
+            added += handleToken(tokenLength, tokenTooLong, target);
+        }
+        return added;
+    }
+
+    // number of invalid tokens skipped so far
+    public long getInvalidTokens() {
+        return this.invalidTokens;
+    }
+
+    // true if the last readAll stopped at the -end sentinel
+    public boolean isEndReached() {
+        return this.endReached;
+    }
+
+    // parse the current token, returns 1 if a value was added
+    private int handleToken(int length, boolean tooLong, DoubleArrayBuilder target) {
+        if (tooLong) {
+            this.invalidTokens++;
+            return 0;
+        }
+        if (isEndToken(length)) {
+            this.endReached = true;
+            return 0;
+        }
+
+        if (parseFast(length, target)) {
+            return 1;
+        }
+
+        // rare formats (NaN, Infinity, hex, long mantissas...), let Double.parseDouble decide
+        try {
+            target.add(Double.parseDouble(new String(this.token, 0, length, java.nio.charset.StandardCharsets.US_ASCII)));
+            return 1;
+        } catch (NumberFormatException e) {
+            this.invalidTokens++;
+            return 0;
+        }
+    }
+
+    // fast path for plain decimals like -12.75 or 3e2: the digits go into a long and are scaled
+    // by one exact power of ten, which gives the correctly rounded double (Clinger's fast path)
+    // returns false if the token does not fit, the caller falls back to Double.parseDouble then
+    private boolean parseFast(int length, DoubleArrayBuilder target) {
+        int i = 0;
+        boolean negative = false;
+        if (this.token[0] == '-' || this.token[0] == '+') {
+            negative = this.token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < length; i++) {
+            byte b = this.token[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) return false;
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) scale--;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return false;
+
+        // optional exponent
+        if (i < length && (this.token[i] == 'e' || this.token[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (this.token[i] == '-' || this.token[i] == '+')) {
+                negativeExponent = this.token[i] == '-';
+                i++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            for (; i < length && this.token[i] >= '0' && this.token[i] <= '9'; i++) {
+                if (exponent > 1000) return false;
+                exponent = exponent * 10 + (this.token[i] - '0');
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) return false;
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i != length) return false;
+        if (scale < -22 || scale > 22) return false;
+
+        double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        target.add(negative ? -value : value);
+        return true;
+    }
+
+    // case insensitive compare with AverageTemp.END_INPUT, without creating a String
+    private boolean isEndToken(int length) {
+        String end = AverageTemp.END_INPUT;
+        if (length != end.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase((char) this.token[i]) != Character.toLowerCase(end.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == '\n' || b == '\r' || b == ',' || b == ';' || b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// compact binary file format for a temperature series, written once and read (mapped) many times
+//
+// layout, all little-endian:
+//   0  magic "TMPS" (4 bytes)
+//   4  version (1 byte), encoding (1 byte), 2 reserved bytes
+//   8  count (long)
+//  16  scale (double, only used by DELTA)
+//  24  8 reserved bytes, so the data starts 32-byte aligned
+//  32  data: FLOAT64 = count doubles, FLOAT32 = count floats,
+//            DELTA = zigzag varint deltas of round(value / scale)
+//
+// FLOAT64 files can be mapped with FileChannel.map and read through DoubleBuffer views without copying
+// the values onto the heap (in 1 GB chunks, so the file size is not limited by the 2 GB of one mapping), FLOAT32 (half size, ~7 digits) and DELTA (smallest, rounded to scale) are decoded
+public class TemperatureFile {
+
+    public enum Encoding {
+        FLOAT64, FLOAT32, DELTA
+    }
+
+    static final int MAGIC = 0x53504D54; // "TMPS" read as a little-endian int
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // default DELTA resolution, 1/100 of a degree
+    public static final double DEFAULT_SCALE = 0.01;
+
+    // no instances, static helper only
+    private TemperatureFile() {
+    }
+
+    // ================ writing ================
+    // write values to a new file (replaces an existing one), scale is only used by DELTA
+    public static void write(Path path, double[] values, Encoding encoding, double scale) throws IOException {
+        if (values == null || encoding == null) {
+            throw new IllegalArgumentException("Values and encoding cannot be null");
+        }
+        if (encoding == Encoding.DELTA && !(scale > 0)) {
+            throw new IllegalArgumentException("Invalid scale: " + scale);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).put(VERSION).put((byte) encoding.ordinal()).putShort((short) 0);
+            header.putLong(values.length).putDouble(encoding == Encoding.DELTA ? scale : 0.0).putLong(0L);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer block = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long previous = 0;
+            for (double value : values) {
+                // a varint delta takes at most 10 bytes, make sure there is always room
+                if (block.remaining() < 10) {
+                    block.flip();
+                    writeFully(channel, block);
+                    block.clear();
+                }
+                switch (encoding) {
+                    case FLOAT64:
+                        block.putDouble(value);
+                        break;
+                    case FLOAT32:
+                        block.putFloat((float) value);
+                        break;
+                    default:
+                        long fixed = toFixed(value, scale);
+                        putVarLong(block, zigZag(fixed - previous));
+                        previous = fixed;
+                }
+            }
+            block.flip();
+            writeFully(channel, block);
+        }
+    }
+
+    // ================ reading ================
+    // values per mapped chunk, 1 GB (a single mapping is limited to 2 GB)
+    static final int CHUNK_VALUES = 1 << 27;
+
+    // zero-copy read-only view of a FLOAT64 file, the values stay in the page cache (off heap)
+    // a single buffer holds up to about 268M values, mapDoubleChunks has no such limit
+    public static DoubleBuffer mapDoubles(Path path) throws IOException {
+        DoubleBuffer[] chunks = mapDoubleChunks(path, Integer.MAX_VALUE / Double.BYTES);
+        if (chunks.length > 1) {
+            throw new IOException("File too large to map in one buffer, use mapDoubleChunks: " + path);
+        }
+        return chunks.length == 1 ? chunks[0] : DoubleBuffer.allocate(0);
+    }
+
+    // zero-copy read-only view of a FLOAT64 file of any size, mapped in chunks of CHUNK_VALUES values
+    // (the TemperatureCalculator DoubleBuffer[] methods take the chunks as one series)
+    public static DoubleBuffer[] mapDoubleChunks(Path path) throws IOException {
+        return mapDoubleChunks(path, CHUNK_VALUES);
+    }
+
+    static DoubleBuffer[] mapDoubleChunks(Path path, int chunkValues) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.encoding != Encoding.FLOAT64) {
+                throw new IOException("Only " + Encoding.FLOAT64 + " files can be mapped, use readAll for " + header.encoding);
+            }
+            if (header.count > (Long.MAX_VALUE - HEADER_SIZE) / Double.BYTES
+                    || channel.size() < HEADER_SIZE + header.count * Double.BYTES) {
+                throw new IOException("Truncated file, expected " + header.count + " values");
+            }
+
+            // the mappings stay valid after the channel is closed
+            DoubleBuffer[] chunks = new DoubleBuffer[(int) ((header.count + chunkValues - 1) / chunkValues)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i * chunkValues;
+                long values = Math.min(chunkValues, header.count - first);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * Double.BYTES, values * Double.BYTES);
+                chunks[i] = mapped.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            return chunks;
+        }
+    }
+
+    // read and decode any encoding into a heap array
+    public static double[] readAll(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.count > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too many values for one array: " + header.count);
+            }
+            double[] values = new double[(int) header.count];
+
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, channel.size() - HEADER_SIZE);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.encoding == Encoding.FLOAT64) {
+                data.asDoubleBuffer().get(values);
+            } else if (header.encoding == Encoding.FLOAT32) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = data.getFloat();
+                }
+            } else {
+                // divide by the inverse scale (exactly 10 for 0.1) instead of multiplying by the scale:
+                // 234 * 0.1 = 23.400000000000002, 234 / 10 = 23.4, so values written as text come back as written
+                double inverseScale = 1 / header.scale;
+                long fixed = 0;
+                for (int i = 0; i < values.length; i++) {
+                    fixed += unZigZag(getVarLong(data));
+                    values[i] = fixed / inverseScale;
+                }
+            }
+            return values;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated file: " + path);
+        }
+    }
+
+    // encoding stored in the header
+    public static Encoding readEncoding(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel).encoding;
+        }
+    }
+
+    // ================ header and encoding helpers ================
+    private static class Header {
+        private Encoding encoding;
+        private long count;
+        private double scale;
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Not a temperature file (too short)");
+        }
+        buffer.flip();
+
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a temperature file (bad magic)");
+        byte version = buffer.get();
+        if (version != VERSION) throw new IOException("Unsupported version: " + version);
+        int encoding = buffer.get();
+        if (encoding < 0 || encoding >= Encoding.values().length) throw new IOException("Unknown encoding: " + encoding);
+        buffer.getShort();
+
+        Header header = new Header();
+        header.encoding = Encoding.values()[encoding];
+        header.count = buffer.getLong();
+        header.scale = buffer.getDouble();
+        if (header.count < 0) throw new IOException("Invalid count: " + header.count);
+        return header;
+    }
+
+    private static long toFixed(double value, double scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("DELTA encoding cannot store " + value);
+        }
+        // Math.round would saturate to Long.MIN_VALUE / MAX_VALUE and store a wrong value without a word
+        double scaled = value / scale;
+        if (!(Math.abs(scaled) < 0x1p63)) {
+            throw new IllegalArgumentException("DELTA encoding cannot store " + value + " at scale " + scale);
+        }
+        return Math.round(scaled);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt delta value");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // ================ command line tool ================
+    // java TemperatureFile convert <text input> <binary output> [float64|float32|delta]
+    // java TemperatureFile stats <binary file>
+    public static void main(String[] args) {
+        if (args.length >= 3 && args[0].equalsIgnoreCase("convert")) {
+            Encoding encoding = args.length > 3 ? Encoding.valueOf(args[3].toUpperCase()) : Encoding.FLOAT64;
+            DoubleArrayBuilder values = new DoubleArrayBuilder();
+            try (InputStream in = new FileInputStream(args[1])) {
+                new TemperatureBulkReader().readAll(in, values);
+                write(Paths.get(args[2]), values.toArray(), encoding, DEFAULT_SCALE);
+                System.out.println("Wrote " + values.size() + " temperatures (" + encoding + ") to " + args[2]);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("<!> Error: " + e.getMessage());
+            }
+        } else if (args.length >= 2 && args[0].equalsIgnoreCase("stats")) {
+            try {
+                Path path = Paths.get(args[1]);
+                double mean;
+                double median;
+                long aboveMean;
+                if (readEncoding(path) == Encoding.FLOAT64) {
+                    // mean and count straight from the read-only mapped file (works on read-only files and mounts),
+                    // the median selects on a heap copy
+                    DoubleBuffer[] data = mapDoubleChunks(path);
+                    mean = TemperatureCalculator.calculateMean(data);
+                    aboveMean = TemperatureCalculator.countAboveMean(data, mean);
+                    median = TemperatureCalculator.calculateMedianUnsorted(data);
+                } else {
+                    double[] data = readAll(path);
+                    mean = TemperatureCalculator.calculateMean(data);
+                    aboveMean = TemperatureCalculator.countAboveMean(data, mean);
+                    median = TemperatureCalculator.calculateMedianUnsorted(data, true);
+                }
+                System.out.printf("Mean %.2f, median %.2f, above mean %d%n", mean, median, aboveMean);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("<!> Error: " + e.getMessage());
+            }
+        } else {
+            System.out.println("Usage: java TemperatureFile convert <text input> <binary output> [float64|float32|delta]");
+            System.out.println("       java TemperatureFile stats <binary file>");
+        }
+    }
+}
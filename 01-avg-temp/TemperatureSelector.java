@@ -0,0 +1,177 @@
+import java.nio.DoubleBuffer;
+
+// selection (k-th smallest value) for primitive double arrays, expected O(n), no sorting
+// uses Floyd-Rivest sampling for large ranges and falls back to sorting the remaining range
+// if partitioning goes bad (introselect style guard), so the worst case stays O(n log n)
+// ordering is the same as TemperatureSorter: -0.0 before 0.0 and NaN is the largest value
+// works on double[], DoubleBuffers go through their backing array or a heap copy
+public class TemperatureSelector {
+
+    // ranges larger than this are narrowed with a recursive sample first (Floyd-Rivest)
+    private static final int SAMPLE_THRESHOLD = 600;
+
+    // no instances, static helper only
+    private TemperatureSelector() {
+    }
+
+    // k-th smallest value (0-based), the array is reordered in place:
+    // afterwards values[k] holds the result, everything before it is <= and everything after it is >=
+    public static double select(double[] values, int k) {
+        validate(values, k);
+        return select(values, 0, values.length, k);
+    }
+
+    // k-th smallest value (0-based) of values[from, to), only that range is reordered
+    static double select(double[] values, int from, int to, int k) {
+
+        // move NaNs to the end of the range, they are the largest values
+        int end = to;
+        for (int i = to - 1; i >= from; i--) {
+            if (values[i] != values[i]) {
+                double temp = values[i];
+                values[i] = values[--end];
+                values[end] = temp;
+            }
+        }
+        if (k >= end) {
+            return Double.NaN;
+        }
+
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(end - from));
+        floydRivest(values, from, end - 1, k, depthLimit);
+
+        // plain < and > comparisons treat -0.0 and 0.0 as equal, sort that out if the result is a zero
+        if (values[k] == 0.0d) {
+            fixZero(values, from, end);
+        }
+        return values[k];
+    }
+
+    // median, the array is reordered in place (no allocation)
+    public static double median(double[] values) {
+        validate(values, 0);
+        return median(values, 0, values.length);
+    }
+
+    // median of values[from, to) (non empty range), only that range is reordered
+    static double median(double[] values, int from, int to) {
+        int n = to - from;
+        double upper = select(values, from, to, from + n / 2);
+        if (n % 2 == 1) {
+            return upper;
+        }
+
+        // n even, the lower middle value is the largest one left of n/2
+        double lower = values[from];
+        for (int i = from + 1; i < from + n / 2; i++) {
+            if (Double.compare(values[i], lower) > 0) lower = values[i];
+        }
+        return (lower + upper) / 2.0;
+    }
+
+    // median of a buffer's values [0, limit), same selection as for arrays: a writable heap buffer is reordered
+    // in place through its backing array, any other buffer (direct, mapped, read-only) is copied to a heap array
+    // first and stays unchanged
+    public static double median(DoubleBuffer values) {
+        int n = values.limit();
+        if (n == 0) {
+            throw new IllegalArgumentException("Buffer cannot be empty");
+        }
+        if (values.hasArray()) {
+            int offset = values.arrayOffset();
+            return median(values.array(), offset, offset + n);
+        }
+        double[] copy = new double[n];
+        values.get(0, copy);
+        return median(copy, 0, n);
+    }
+
+    // Floyd-Rivest selection on values[left..right] (inclusive), no NaNs expected in the range
+    private static void floydRivest(double[] a, int left, int right, int k, int depthLimit) {
+        while (right > left) {
+
+            // partitioning keeps going badly, just sort what is left
+            if (depthLimit-- == 0) {
+                TemperatureSorter.sort(a, left, right + 1);
+                return;
+            }
+
+            // narrow the range with a sample so that a[k] becomes a very good pivot
+            if (right - left > SAMPLE_THRESHOLD) {
+                double n = right - left + 1;
+                double i = k - left + 1;
+                double z = Math.log(n);
+                double s = 0.5 * Math.exp(2 * z / 3);
+                double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2);
+                int newLeft = Math.max(left, (int) (k - i * s / n + sd));
+                int newRight = Math.min(right, (int) (k + (n - i) * s / n + sd));
+                floydRivest(a, newLeft, newRight, k, depthLimit);
+            }
+
+            // partition around t = a[k]
+            double t = a[k];
+            int i = left;
+            int j = right;
+            swap(a, left, k);
+            if (a[right] > t) swap(a, right, left);
+            while (i < j) {
+                swap(a, i, j);
+                i++;
+                j--;
+                while (a[i] < t) i++;
+                while (a[j] > t) j--;
+            }
+            if (a[left] == t) {
+                swap(a, left, j);
+            } else {
+                j++;
+                swap(a, j, right);
+            }
+
+            // continue only on the side holding k
+            if (j <= k) left = j + 1;
+            if (k <= j) right = j - 1;
+        }
+    }
+
+    // a[k] is a zero: regroup [from, to) as negatives, -0.0, 0.0, positives, so every zero (a[k] too) sits where
+    // sorting would put it and "everything before k is <=" also holds for the sign of the zeros
+    // only the order around the zeros changes, the values left and right of the zero run stay on their side
+    private static void fixZero(double[] a, int from, int to) {
+        int split = partition(a, from, to, 2);
+        partition(a, from, split, 1);
+        partition(a, split, to, 3);
+    }
+
+    // moves the values of a[from, to) with zeroRank below limit to the front, returns where the others start
+    private static int partition(double[] a, int from, int to, int limit) {
+        int next = from;
+        for (int i = from; i < to; i++) {
+            if (zeroRank(a[i]) < limit) swap(a, i, next++);
+        }
+        return next;
+    }
+
+    // 0 = negative, 1 = -0.0, 2 = 0.0, 3 = positive
+    private static int zeroRank(double value) {
+        if (value < 0.0d) return 0;
+        if (value > 0.0d) return 3;
+        return Double.doubleToRawLongBits(value) == 0L ? 2 : 1;
+    }
+
+    // method to validate the array and index
+    private static void validate(double[] values, int k) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException("Array cannot be null or empty");
+        }
+        if (k < 0 || k >= values.length) {
+            throw new IllegalArgumentException("Invalid index: " + k);
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// sort engine for primitive double arrays, picks algorithm based on input size
+// ordering is always the one of Double.compare: -0.0 comes before 0.0 and NaN is the largest value,
+// descending order is the exact reverse of ascending (so NaNs come first)
+public class TemperatureSorter {
+
+    // available sort algorithms, AUTO picks one of the others based on array size
+    public enum Algorithm {
+        AUTO, INSERTION, DUAL_PIVOT_QUICKSORT, RADIX, PARALLEL_MERGE
+    }
+
+    // size thresholds used by AUTO
+    static final int INSERTION_THRESHOLD = 32;
+    static final int RADIX_THRESHOLD = 1 << 12;
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    // radix digit size, 11 bits -> 6 passes over 64 bit keys
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX_SIZE = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX_SIZE - 1;
+
+    // no instances, static helper only
+    private TemperatureSorter() {
+    }
+
+    // sort in place ascending, automatic algorithm choice
+    public static void sort(double[] values) {
+        sort(values, false, Algorithm.AUTO);
+    }
+
+    // sort in place with order control, automatic algorithm choice
+    public static void sort(double[] values, boolean descending) {
+        sort(values, descending, Algorithm.AUTO);
+    }
+
+    // sort in place with order control and explicit algorithm
+    public static void sort(double[] values, boolean descending, Algorithm algorithm) {
+        if (values == null) {
+            throw new IllegalArgumentException("Array to sort cannot be null");
+        }
+        if (algorithm == null) {
+            algorithm = Algorithm.AUTO;
+        }
+
+        sortRange(values, 0, values.length, algorithm == Algorithm.AUTO ? choose(values.length) : algorithm);
+
+        if (descending) {
+            reverse(values, 0, values.length);
+        }
+    }
+
+    // ascending sort of values[from, to) without extra allocation (used as a fallback by the selector)
+    static void sort(double[] values, int from, int to) {
+        sortRange(values, from, to, to - from <= INSERTION_THRESHOLD ? Algorithm.INSERTION : Algorithm.DUAL_PIVOT_QUICKSORT);
+    }
+
+    // algorithm picked by AUTO for the given size
+    static Algorithm choose(int n) {
+        if (n <= INSERTION_THRESHOLD) return Algorithm.INSERTION;
+        if (n < RADIX_THRESHOLD) return Algorithm.DUAL_PIVOT_QUICKSORT;
+        if (n < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2) return Algorithm.RADIX;
+        return Algorithm.PARALLEL_MERGE;
+    }
+
+    // ascending sort of values[from, to) with the given (non AUTO) algorithm
+    private static void sortRange(double[] values, int from, int to, Algorithm algorithm) {
+        if (to - from < 2) return;
+
+        switch (algorithm) {
+            case INSERTION:
+                insertionSort(values, from, to);
+                break;
+            case DUAL_PIVOT_QUICKSORT:
+                quickSort(values, from, to);
+                break;
+            case RADIX:
+                radixSort(values, from, to, new long[to - from], new long[to - from]);
+                break;
+            case PARALLEL_MERGE:
+                sortParallel(values, from, to, ForkJoinPool.commonPool());
+                break;
+            default:
+                sortRange(values, from, to, choose(to - from));
+        }
+    }
+
+    // ascending parallel merge sort of values[from, to) in the given pool, about 4 leaves per thread
+    static void sortParallel(double[] values, int from, int to, ForkJoinPool pool) {
+        sortParallel(values, from, to, pool, Math.max(RADIX_THRESHOLD, (to - from) / (4 * pool.getParallelism())));
+    }
+
+    // same with a given leaf size (ranges up to leafSize are sorted sequentially)
+    static void sortParallel(double[] values, int from, int to, ForkJoinPool pool, int leafSize) {
+        if (leafSize < 1) {
+            throw new IllegalArgumentException("Invalid leaf size: " + leafSize);
+        }
+        pool.invoke(new MergeSortTask(values, new double[values.length], from, to, leafSize));
+    }
+
+    // ================ insertion sort (small ranges) ================
+    private static void insertionSort(double[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double value = a[i];
+            int j = i - 1;
+            while (j >= from && Double.compare(a[j], value) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    // ================ dual-pivot quicksort ================
+    // NaNs are moved to the tail first and zeros are fixed up at the end,
+    // so the partitioning loop itself can use plain < and > comparisons
+    private static void quickSort(double[] a, int from, int to) {
+        // move NaNs to the end of the range
+        int end = to;
+        for (int i = to - 1; i >= from; i--) {
+            if (a[i] != a[i]) {
+                double temp = a[i];
+                a[i] = a[--end];
+                a[end] = temp;
+            }
+        }
+
+        dualPivotQuickSort(a, from, end - 1);
+        fixNegativeZeros(a, from, end);
+    }
+
+    // sorts a[left..right] (inclusive), no NaNs expected in the range
+    private static void dualPivotQuickSort(double[] a, int left, int right) {
+        while (right - left >= INSERTION_THRESHOLD) {
+            // pick pivots from the tertiles to avoid worst case on sorted input
+            int third = (right - left) / 3;
+            int m1 = left + third;
+            int m2 = right - third;
+            if (a[m1] > a[m2]) swap(a, m1, m2);
+            swap(a, left, m1);
+            swap(a, right, m2);
+
+            double pivot1 = a[left];
+            double pivot2 = a[right];
+
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                double value = a[k];
+                if (value < pivot1) {
+                    swap(a, k, less++);
+                } else if (value > pivot2) {
+                    while (k < great && a[great] > pivot2) great--;
+                    swap(a, k, great--);
+                    value = a[k];
+                    if (value < pivot1) swap(a, k, less++);
+                }
+            }
+            swap(a, left, --less);
+            swap(a, right, ++great);
+
+            // recurse into the two smaller parts, loop on the largest one
+            int leftSize = less - left;
+            int middleSize = great - less - 1;
+            int rightSize = right - great;
+            if (leftSize >= middleSize && leftSize >= rightSize) {
+                dualPivotQuickSort(a, less + 1, great - 1);
+                dualPivotQuickSort(a, great + 1, right);
+                right = less - 1;
+            } else if (rightSize >= middleSize) {
+                dualPivotQuickSort(a, left, less - 1);
+                dualPivotQuickSort(a, less + 1, great - 1);
+                left = great + 1;
+            } else {
+                dualPivotQuickSort(a, left, less - 1);
+                dualPivotQuickSort(a, great + 1, right);
+                // all equal to the pivots, nothing left to do
+                if (pivot1 == pivot2) return;
+
+                // move values equal to the pivots out of the middle part,
+                // otherwise inputs with many duplicates degrade to quadratic time
+                left = less + 1;
+                right = great - 1;
+                for (int k = left; k <= right; k++) {
+                    double value = a[k];
+                    if (value == pivot1) {
+                        swap(a, k, left++);
+                    } else if (value == pivot2) {
+                        while (k < right && a[right] == pivot2) right--;
+                        swap(a, k, right--);
+                        if (a[k] == pivot1) swap(a, k, left++);
+                    }
+                }
+            }
+        }
+        insertionSort(a, left, right + 1);
+    }
+
+    // after sorting with <, -0.0 and 0.0 can be mixed, put all -0.0 first
+    private static void fixNegativeZeros(double[] a, int from, int to) {
+        // binary search for the first value >= 0.0
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (a[middle] < 0.0d) low = middle + 1;
+            else high = middle;
+        }
+
+        int zeroStart = low;
+        int negativeZeros = 0;
+        int i = zeroStart;
+        for (; i < to && a[i] == 0.0d; i++) {
+            if (Double.doubleToRawLongBits(a[i]) != 0L) negativeZeros++;
+        }
+        for (int k = zeroStart; negativeZeros > 0 && k < i; k++) {
+            a[k] = k - zeroStart < negativeZeros ? -0.0d : 0.0d;
+        }
+    }
+
+    // ================ LSD radix sort over IEEE-754 bits ================
+    // keys are the double bits flipped so that unsigned long order matches Double.compare,
+    // doubleToLongBits collapses all NaNs into the canonical one which sorts above +Infinity
+    private static void radixSort(double[] a, int from, int to, long[] keys, long[] buffer) {
+        int n = to - from;
+        for (int i = 0; i < n; i++) {
+            keys[i] = toSortableBits(a[from + i]);
+        }
+
+        int[] counts = new int[RADIX_SIZE];
+        long[] source = keys;
+        long[] target = buffer;
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            java.util.Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) (source[i] >>> shift) & RADIX_MASK]++;
+            }
+
+            // skip the pass if every key has the same digit
+            if (counts[(int) (source[0] >>> shift) & RADIX_MASK] == n) continue;
+
+            int sum = 0;
+            for (int d = 0; d < RADIX_SIZE; d++) {
+                int count = counts[d];
+                counts[d] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < n; i++) {
+                long key = source[i];
+                target[counts[(int) (key >>> shift) & RADIX_MASK]++] = key;
+            }
+
+            long[] temp = source;
+            source = target;
+            target = temp;
+        }
+
+        for (int i = 0; i < n; i++) {
+            a[from + i] = fromSortableBits(source[i]);
+        }
+    }
+
+    // map double bits so that the unsigned long order is the Double.compare order
+    static long toSortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    // inverse of toSortableBits
+    static double fromSortableBits(long key) {
+        long bits = key ^ ((~key >> 63) | Long.MIN_VALUE);
+        return Double.longBitsToDouble(bits);
+    }
+
+    // ================ parallel merge sort ================
+    // halves are sorted in parallel (radix at the leaves) and merged through a shared buffer
+    private static class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] a;
+        private final double[] buffer;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        MergeSortTask(double[] a, double[] buffer, int from, int to, int leafSize) {
+            this.a = a;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            int n = to - from;
+            if (n <= leafSize) {
+                sortRange(a, from, to, n < RADIX_THRESHOLD ? choose(n) : Algorithm.RADIX);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new MergeSortTask(a, buffer, from, middle, leafSize), new MergeSortTask(a, buffer, middle, to, leafSize));
+
+            // already in order, nothing to merge
+            if (Double.compare(a[middle - 1], a[middle]) <= 0) return;
+
+            System.arraycopy(a, from, buffer, from, n);
+            int i = from;
+            int j = middle;
+            int k = from;
+            while (i < middle && j < to) {
+                a[k++] = Double.compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+            }
+            while (i < middle) a[k++] = buffer[i++];
+            while (j < to) a[k++] = buffer[j++];
+        }
+    }
+
+    // ================ helpers ================
+    private static void swap(double[] a, int i, int j) {
+        double temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    // reverse a[from, to) in place (descending order from an ascending sort)
+    static void reverse(double[] a, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            swap(a, i, j);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// summary statistics of a temperature array, computed by a fused kernel:
+// one pass for count, min, max, mean and variance, and a second pass for the count above the mean
+public class TemperatureStats {
+
+    private final int count;
+    private final double mean;
+    private final double min;
+    private final double max;
+    private final double variance;
+    private final int aboveMeanCount;
+
+    // constructor, use TemperatureStats.of(...) to compute the values
+    public TemperatureStats(int count, double mean, double min, double max, double variance, int aboveMeanCount) {
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.variance = variance;
+        this.aboveMeanCount = aboveMeanCount;
+    }
+
+    // compute all the statistics for the given (non empty) array
+    public static TemperatureStats of(double[] temperatures) {
+        if (temperatures == null || temperatures.length == 0) {
+            throw new IllegalArgumentException("Temperature array cannot be null or empty");
+        }
+
+        int n = temperatures.length;
+
+        // values are shifted by the first one before squaring, this keeps the sum of squares
+        // small and avoids the cancellation of the naive E[x^2] - E[x]^2 formula
+        double shift = temperatures[0];
+
+        // 4 independent accumulator lanes, so the loop is not bound by one add chain
+        // the sums are Neumaier (Kahan) compensated
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        double comp0 = 0, comp1 = 0, comp2 = 0, comp3 = 0;
+        double sq0 = 0, sq1 = 0, sq2 = 0, sq3 = 0;
+        double min0 = shift, min1 = shift, min2 = shift, min3 = shift;
+        double max0 = shift, max1 = shift, max2 = shift, max3 = shift;
+
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            double d0 = temperatures[i] - shift;
+            double d1 = temperatures[i + 1] - shift;
+            double d2 = temperatures[i + 2] - shift;
+            double d3 = temperatures[i + 3] - shift;
+
+            double t0 = sum0 + d0;
+            double t1 = sum1 + d1;
+            double t2 = sum2 + d2;
+            double t3 = sum3 + d3;
+            comp0 += Math.abs(sum0) >= Math.abs(d0) ? (sum0 - t0) + d0 : (d0 - t0) + sum0;
+            comp1 += Math.abs(sum1) >= Math.abs(d1) ? (sum1 - t1) + d1 : (d1 - t1) + sum1;
+            comp2 += Math.abs(sum2) >= Math.abs(d2) ? (sum2 - t2) + d2 : (d2 - t2) + sum2;
+            comp3 += Math.abs(sum3) >= Math.abs(d3) ? (sum3 - t3) + d3 : (d3 - t3) + sum3;
+            sum0 = t0;
+            sum1 = t1;
+            sum2 = t2;
+            sum3 = t3;
+
+            sq0 += d0 * d0;
+            sq1 += d1 * d1;
+            sq2 += d2 * d2;
+            sq3 += d3 * d3;
+
+            min0 = Math.min(min0, temperatures[i]);
+            min1 = Math.min(min1, temperatures[i + 1]);
+            min2 = Math.min(min2, temperatures[i + 2]);
+            min3 = Math.min(min3, temperatures[i + 3]);
+            max0 = Math.max(max0, temperatures[i]);
+            max1 = Math.max(max1, temperatures[i + 1]);
+            max2 = Math.max(max2, temperatures[i + 2]);
+            max3 = Math.max(max3, temperatures[i + 3]);
+        }
+
+        // remaining 0-3 values go to lane 0
+        for (; i < n; i++) {
+            double d = temperatures[i] - shift;
+            double t = sum0 + d;
+            comp0 += Math.abs(sum0) >= Math.abs(d) ? (sum0 - t) + d : (d - t) + sum0;
+            sum0 = t;
+            sq0 += d * d;
+            min0 = Math.min(min0, temperatures[i]);
+            max0 = Math.max(max0, temperatures[i]);
+        }
+
+        // combine the lanes, always in the same order so the result is deterministic
+        double shiftedSum = (sum0 + sum1) + (sum2 + sum3) + ((comp0 + comp1) + (comp2 + comp3));
+        double squares = (sq0 + sq1) + (sq2 + sq3);
+        double shiftedMean = shiftedSum / n;
+
+        double mean = shift + shiftedMean;
+        double variance = Math.max(0.0, squares / n - shiftedMean * shiftedMean);
+        double min = Math.min(Math.min(min0, min1), Math.min(min2, min3));
+        double max = Math.max(Math.max(max0, max1), Math.max(max2, max3));
+
+        return new TemperatureStats(n, mean, min, max, variance, countAbove(temperatures, mean));
+    }
+
+    // second pass, branch free counting in 4 lanes
+    static int countAbove(double[] temperatures, double threshold) {
+        int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int n = temperatures.length;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            c0 += temperatures[i] > threshold ? 1 : 0;
+            c1 += temperatures[i + 1] > threshold ? 1 : 0;
+            c2 += temperatures[i + 2] > threshold ? 1 : 0;
+            c3 += temperatures[i + 3] > threshold ? 1 : 0;
+        }
+        for (; i < n; i++) {
+            c0 += temperatures[i] > threshold ? 1 : 0;
+        }
+        return (c0 + c1) + (c2 + c3);
+    }
+
+    // getters
+    public int getCount() {
+        return this.count;
+    }
+
+    public double getMean() {
+        return this.mean;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    // population variance
+    public double getVariance() {
+        return this.variance;
+    }
+
+    // sample variance (n - 1 in the denominator), 0 for a single value
+    public double getSampleVariance() {
+        return this.count > 1 ? this.variance * this.count / (this.count - 1) : 0.0;
+    }
+
+    // population standard deviation
+    public double getStandardDeviation() {
+        return Math.sqrt(this.variance);
+    }
+
+    public int getAboveMeanCount() {
+        return this.aboveMeanCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.4f, min=%.4f, max=%.4f, variance=%.4f, stddev=%.4f, above mean=%d",
+            count, mean, min, max, variance, getStandardDeviation(), aboveMeanCount);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Random;
+
+// compares the fused statistics kernel (TemperatureStats) with the separate TemperatureCalculator methods
+// plus the extra passes needed for min, max and variance, checks the results match and prints timings
+// run: java TemperatureStatsComparison [size] [rounds]
+public class TemperatureStatsComparison {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        // temperatures around 15 degrees, so the accumulated sums are large compared to the spread
+        Random random = new Random(42);
+        double[] temperatures = new double[size];
+        for (int i = 0; i < size; i++) {
+            temperatures[i] = 15.0 + random.nextGaussian() * 8.0;
+        }
+
+        System.out.println("\n*** Fused statistics vs separate passes, " + size + " values, " + rounds + " rounds ***\n");
+
+        TemperatureStats fused = null;
+        double[] separate = null;
+        long fusedTime = Long.MAX_VALUE;
+        long separateTime = Long.MAX_VALUE;
+
+        // first rounds warm up the JIT, keep the best time of each
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            separate = separatePasses(temperatures);
+            separateTime = Math.min(separateTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            fused = TemperatureCalculator.calculateStatistics(temperatures);
+            fusedTime = Math.min(fusedTime, System.nanoTime() - start);
+        }
+
+        System.out.println("Separate: mean=" + separate[0] + ", min=" + separate[1] + ", max=" + separate[2]
+            + ", variance=" + separate[3] + ", above mean=" + (int) separate[4]);
+        System.out.println("Fused:    " + fused);
+        System.out.printf("%nMean difference:     %.3e%n", Math.abs(fused.getMean() - separate[0]));
+        System.out.printf("Variance difference: %.3e%n", Math.abs(fused.getVariance() - separate[3]));
+        System.out.printf("%nSeparate passes: %8.2f ms%n", separateTime / 1e6);
+        System.out.printf("Fused kernel:    %8.2f ms (%.2fx)%n%n", fusedTime / 1e6, (double) separateTime / fusedTime);
+    }
+
+    // the way the statistics were computed before: one method (and one pass) per value
+    // variance is the two-pass textbook version, used as the reference for accuracy
+    private static double[] separatePasses(double[] temperatures) {
+        double mean = TemperatureCalculator.calculateMean(temperatures);
+        int aboveMean = TemperatureCalculator.countAboveMean(temperatures, mean);
+
+        double min = temperatures[0];
+        for (double temp : temperatures) {
+            if (temp < min) min = temp;
+        }
+
+        double max = temperatures[0];
+        for (double temp : temperatures) {
+            if (temp > max) max = temp;
+        }
+
+        double squares = 0;
+        for (double temp : temperatures) {
+            squares += (temp - mean) * (temp - mean);
+        }
+
+        return new double[]{mean, min, max, squares / temperatures.length, aboveMean};
+    }
+}
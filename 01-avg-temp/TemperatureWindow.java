@@ -0,0 +1,312 @@
+import java.util.Arrays;
+
+// sliding window over a temperature series, for rolling dashboard values (e.g. 5 minute mean, 1 hour median)
+// the window keeps the last maxCount values and/or the values of the last maxAgeMillis milliseconds
+// values sit in a ring buffer of primitive doubles (with a parallel ring of timestamps)
+//  - mean and variance: O(1) per add/evict (Welford update and its inverse)
+//  - median: O(log w) per add/evict, two indexed heaps (max-heap of the lower half, min-heap of the upper half)
+//    that hold ring slot numbers, every slot knows its heap position so evicting it does not need a search
+//  - count above the mean: O(w) scan of the ring, the mean moves with every value so it cannot be kept up to date
+public class TemperatureWindow {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxCount;
+    private final long maxAgeMillis;
+
+    // ring buffer, head = oldest slot
+    private double[] values;
+    private long[] timestamps;
+    private int head;
+    private int size;
+
+    // running mean and sum of squared differences
+    private double mean;
+    private double m2;
+
+    // heaps of slot numbers, lower half is a max-heap, upper half a min-heap
+    // the lower half holds the extra value when the size is odd
+    private int[] lowHeap;
+    private int[] highHeap;
+    private int lowSize;
+    private int highSize;
+    // heap position of every slot, negative = -(position + 1) in the high heap
+    private int[] slotPosition;
+
+    // count based window (last maxCount values)
+    public static TemperatureWindow ofCount(int maxCount) {
+        return new TemperatureWindow(maxCount, 0);
+    }
+
+    // time based window (values not older than maxAgeMillis)
+    public static TemperatureWindow ofTime(long maxAgeMillis) {
+        return new TemperatureWindow(0, maxAgeMillis);
+    }
+
+    // constructor, 0 = no limit, at least one of the limits must be set
+    public TemperatureWindow(int maxCount, long maxAgeMillis) {
+        if (maxCount < 0 || maxAgeMillis < 0 || (maxCount == 0 && maxAgeMillis == 0)) {
+            throw new IllegalArgumentException("Invalid window: count " + maxCount + ", age " + maxAgeMillis + " ms");
+        }
+        this.maxCount = maxCount;
+        this.maxAgeMillis = maxAgeMillis;
+
+        int capacity = maxCount > 0 ? maxCount : INITIAL_CAPACITY;
+        this.values = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.lowHeap = new int[capacity];
+        this.highHeap = new int[capacity];
+        this.slotPosition = new int[capacity];
+    }
+
+    // add a value without a timestamp (count windows), uses the current time
+    public void add(double temperature) {
+        add(System.currentTimeMillis(), temperature);
+    }
+
+    // add a value, timestamps must not go backwards
+    public void add(long timestampMillis, double temperature) {
+        if (Double.isNaN(temperature)) {
+            throw new IllegalArgumentException("Temperature cannot be NaN");
+        }
+        if (this.size > 0 && timestampMillis < this.timestamps[slot(this.size - 1)]) {
+            throw new IllegalArgumentException("Timestamps must not go backwards: " + timestampMillis);
+        }
+
+        evictOlderThan(timestampMillis);
+        if (this.maxCount > 0 && this.size == this.maxCount) {
+            evictOldest();
+        }
+        if (this.size == this.values.length) {
+            grow();
+        }
+
+        int slot = slot(this.size);
+        this.values[slot] = temperature;
+        this.timestamps[slot] = timestampMillis;
+        this.size++;
+
+        double delta = temperature - this.mean;
+        this.mean += delta / this.size;
+        this.m2 += delta * (temperature - this.mean);
+
+        insertIntoHeaps(slot);
+    }
+
+    // drop values that are too old at the given time (time windows), e.g. before reading at a quiet period
+    public void advanceTo(long timestampMillis) {
+        evictOlderThan(timestampMillis);
+    }
+
+    // ================ queries ================
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public double getMean() {
+        return this.size > 0 ? this.mean : Double.NaN;
+    }
+
+    // population variance
+    public double getVariance() {
+        return this.size > 0 ? Math.max(0.0, this.m2 / this.size) : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    // median, same definition as TemperatureCalculator.calculateMedian
+    public double getMedian() {
+        if (this.size == 0) return Double.NaN;
+        double lower = this.values[this.lowHeap[0]];
+        if (this.size % 2 == 1) return lower;
+        return (lower + this.values[this.highHeap[0]]) / 2.0;
+    }
+
+    // number of values in the window above the window mean
+    public int countAboveMean() {
+        double currentMean = getMean();
+        int count = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (this.values[slot(i)] > currentMean) count++;
+        }
+        return count;
+    }
+
+    // copy of the window values, oldest first (e.g. for TemperatureCalculator)
+    public double[] toArray() {
+        double[] result = new double[this.size];
+        int firstPart = Math.min(this.size, this.values.length - this.head);
+        System.arraycopy(this.values, this.head, result, 0, firstPart);
+        System.arraycopy(this.values, 0, result, firstPart, this.size - firstPart);
+        return result;
+    }
+
+    // full statistics of the current window through the fused kernel
+    public TemperatureStats getStatistics() {
+        return TemperatureCalculator.calculateStatistics(toArray());
+    }
+
+    // ================ eviction ================
+    private void evictOlderThan(long now) {
+        if (this.maxAgeMillis == 0) return;
+        while (this.size > 0 && now - this.timestamps[this.head] >= this.maxAgeMillis) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        int slot = this.head;
+        double temperature = this.values[slot];
+
+        removeFromHeaps(slot);
+        this.head = (this.head + 1) % this.values.length;
+        this.size--;
+
+        // inverse Welford update
+        if (this.size == 0) {
+            this.mean = 0;
+            this.m2 = 0;
+        } else {
+            double delta = temperature - this.mean;
+            this.mean -= delta / this.size;
+            this.m2 -= delta * (temperature - this.mean);
+        }
+    }
+
+    // double the ring (time windows only), slots are renumbered so the heaps are remapped too
+    private void grow() {
+        int oldCapacity = this.values.length;
+        int newCapacity = oldCapacity * 2;
+        int[] newSlot = new int[oldCapacity];
+        for (int i = 0; i < this.size; i++) {
+            newSlot[slot(i)] = i;
+        }
+
+        long[] newTimestamps = new long[newCapacity];
+        for (int i = 0; i < this.size; i++) {
+            newTimestamps[i] = this.timestamps[slot(i)];
+        }
+        this.timestamps = newTimestamps;
+        this.values = Arrays.copyOf(toArray(), newCapacity);
+        this.head = 0;
+
+        this.lowHeap = Arrays.copyOf(this.lowHeap, newCapacity);
+        this.highHeap = Arrays.copyOf(this.highHeap, newCapacity);
+        this.slotPosition = new int[newCapacity];
+        for (int i = 0; i < this.lowSize; i++) {
+            this.lowHeap[i] = newSlot[this.lowHeap[i]];
+            this.slotPosition[this.lowHeap[i]] = i;
+        }
+        for (int i = 0; i < this.highSize; i++) {
+            this.highHeap[i] = newSlot[this.highHeap[i]];
+            this.slotPosition[this.highHeap[i]] = -(i + 1);
+        }
+    }
+
+    private int slot(int index) {
+        return (this.head + index) % this.values.length;
+    }
+
+    // ================ indexed two-heap median ================
+    private void insertIntoHeaps(int slot) {
+        if (this.lowSize == 0 || this.values[slot] <= this.values[this.lowHeap[0]]) {
+            this.lowHeap[this.lowSize] = slot;
+            setPosition(slot, true, this.lowSize);
+            siftUp(true, this.lowSize++);
+        } else {
+            this.highHeap[this.highSize] = slot;
+            setPosition(slot, false, this.highSize);
+            siftUp(false, this.highSize++);
+        }
+        rebalance();
+    }
+
+    private void removeFromHeaps(int slot) {
+        int position = this.slotPosition[slot];
+        boolean low = position >= 0;
+        int index = low ? position : -position - 1;
+        int[] heap = low ? this.lowHeap : this.highHeap;
+        int last = low ? --this.lowSize : --this.highSize;
+
+        if (index != last) {
+            heap[index] = heap[last];
+            setPosition(heap[index], low, index);
+            siftDown(low, index);
+            siftUp(low, index);
+        }
+        rebalance();
+    }
+
+    // keep lowSize == highSize or lowSize == highSize + 1
+    private void rebalance() {
+        if (this.lowSize > this.highSize + 1) {
+            int slot = popTop(true);
+            this.highHeap[this.highSize] = slot;
+            setPosition(slot, false, this.highSize);
+            siftUp(false, this.highSize++);
+        } else if (this.highSize > this.lowSize) {
+            int slot = popTop(false);
+            this.lowHeap[this.lowSize] = slot;
+            setPosition(slot, true, this.lowSize);
+            siftUp(true, this.lowSize++);
+        }
+    }
+
+    private int popTop(boolean low) {
+        int[] heap = low ? this.lowHeap : this.highHeap;
+        int top = heap[0];
+        int last = low ? --this.lowSize : --this.highSize;
+        if (last > 0) {
+            heap[0] = heap[last];
+            setPosition(heap[0], low, 0);
+            siftDown(low, 0);
+        }
+        return top;
+    }
+
+    // true if slot a belongs closer to the top than slot b
+    private boolean above(boolean low, int a, int b) {
+        return low ? this.values[a] > this.values[b] : this.values[a] < this.values[b];
+    }
+
+    private void siftUp(boolean low, int index) {
+        int[] heap = low ? this.lowHeap : this.highHeap;
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!above(low, heap[index], heap[parent])) break;
+            swapHeap(low, heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(boolean low, int index) {
+        int[] heap = low ? this.lowHeap : this.highHeap;
+        int heapSize = low ? this.lowSize : this.highSize;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && above(low, heap[child + 1], heap[child])) child++;
+            if (!above(low, heap[child], heap[index])) break;
+            swapHeap(low, heap, index, child);
+            index = child;
+        }
+    }
+
+    private void swapHeap(boolean low, int[] heap, int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+        setPosition(heap[i], low, i);
+        setPosition(heap[j], low, j);
+    }
+
+    private void setPosition(int slot, boolean low, int index) {
+        this.slotPosition[slot] = low ? index : -(index + 1);
+    }
+}
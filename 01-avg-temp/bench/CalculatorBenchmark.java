@@ -0,0 +1,70 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// TemperatureCalculator operations over input sizes 10 .. 10^8 and different data shapes
+// run with -prof gc to see the allocation rate (gc.alloc.rate.norm = bytes allocated per operation)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class CalculatorBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "DUPLICATES"})
+    public Shape shape;
+
+    private double[] temperatures;
+    private double mean;
+
+    @Setup
+    public void setUp() throws Throwable {
+        this.temperatures = this.shape.generate(this.size);
+        this.mean = (double) Targets.MEAN.invokeExact(this.temperatures);
+    }
+
+    // sorted copy (sort engine)
+    @Benchmark
+    public double[] sortTemperatures() throws Throwable {
+        return (double[]) Targets.SORT.invokeExact(this.temperatures, false);
+    }
+
+    @Benchmark
+    public double calculateMean() throws Throwable {
+        return (double) Targets.MEAN.invokeExact(this.temperatures);
+    }
+
+    // median the old way: full sort, then read the middle
+    @Benchmark
+    public double calculateMedianBySort() throws Throwable {
+        double[] sorted = (double[]) Targets.SORT.invokeExact(this.temperatures, false);
+        return (double) Targets.MEDIAN_SORTED.invokeExact(sorted);
+    }
+
+    // median with selection on a copy (the input must stay unchanged between invocations)
+    @Benchmark
+    public double calculateMedianBySelection() throws Throwable {
+        return (double) Targets.MEDIAN_SELECT.invokeExact(this.temperatures, false);
+    }
+
+    @Benchmark
+    public int countAboveMean() throws Throwable {
+        return (int) Targets.COUNT_ABOVE_MEAN.invokeExact(this.temperatures, this.mean);
+    }
+}
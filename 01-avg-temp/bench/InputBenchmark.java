@@ -0,0 +1,85 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// parsing one value per line: the Scanner based TemperatureInputReader against TemperatureBulkReader
+// stops at 10^7 lines, the Scanner path already takes seconds per operation there
+// run with -prof gc to compare the bytes allocated per parsed value
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class InputBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "DUPLICATES"})
+    public Shape shape;
+
+    private byte[] input;
+    private InputStream originalIn;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder(this.size * 8);
+        for (double value : this.shape.generate(this.size)) {
+            text.append(value).append('\n');
+        }
+        text.append("-end\n");
+        this.input = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+        // the console reader prints a prompt for every value, send it nowhere
+        this.originalIn = System.in;
+        this.originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setIn(this.originalIn);
+        System.setOut(this.originalOut);
+    }
+
+    // the console path, one Scanner.nextLine + Double per value (reader reads System.in)
+    @Benchmark
+    public int scannerReader() throws Throwable {
+        System.setIn(new ByteArrayInputStream(this.input));
+        Object reader = Targets.NEW_INPUT_READER.invokeExact();
+        int count = 0;
+        while ((Object) Targets.READ_TEMPERATURE.invokeExact(reader, (Object) "") != null) {
+            count++;
+        }
+        return count;
+    }
+
+    // bulk path, parsed from a byte buffer into a primitive array
+    @Benchmark
+    public int bulkReader() throws Throwable {
+        Object reader = Targets.NEW_BULK_READER.invokeExact();
+        Object values = Targets.NEW_ARRAY_BUILDER.invokeExact();
+        return (int) Targets.BULK_READ_ALL.invokeExact(reader, (Object) new ByteArrayInputStream(this.input), values);
+    }
+}
@@ -0,0 +1,32 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// input data shapes for the benchmarks, generated with a fixed seed so every run sees the same data
+public enum Shape {
+    RANDOM, SORTED, REVERSED, DUPLICATES;
+
+    // temperature-like values (mean 15, std dev 8, two decimals)
+    double[] generate(int size) {
+        Random random = new Random(42);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = this == DUPLICATES
+                // only 16 different values
+                ? random.nextInt(16) - 5
+                : Math.round((15.0 + random.nextGaussian() * 8.0) * 100) / 100.0;
+        }
+        if (this == SORTED || this == REVERSED) {
+            Arrays.sort(values);
+        }
+        if (this == REVERSED) {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                double temp = values[i];
+                values[i] = values[j];
+                values[j] = temp;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// the calculator classes live in the default package, which cannot be imported from a named package
+// (and JMH does not allow benchmarks in the default package), so they are reached through method handles
+// static final handles are constants for the JIT, calls through invokeExact get inlined like direct calls
+final class Targets {
+
+    static final MethodHandle SORT = find("TemperatureCalculator", "sortTemperatures",
+        double[].class, double[].class, boolean.class);
+    static final MethodHandle MEAN = find("TemperatureCalculator", "calculateMean",
+        double.class, double[].class);
+    static final MethodHandle MEDIAN_SORTED = find("TemperatureCalculator", "calculateMedian",
+        double.class, double[].class);
+    static final MethodHandle MEDIAN_SELECT = find("TemperatureCalculator", "calculateMedianUnsorted",
+        double.class, double[].class, boolean.class);
+    static final MethodHandle COUNT_ABOVE_MEAN = find("TemperatureCalculator", "countAboveMean",
+        int.class, double[].class, double.class);
+
+    static final MethodHandle NEW_INPUT_READER = findConstructor("TemperatureInputReader");
+    static final MethodHandle READ_TEMPERATURE = find("TemperatureInputReader", "readTemperature",
+        Double.class, String.class);
+    static final MethodHandle NEW_BULK_READER = findConstructor("TemperatureBulkReader");
+    static final MethodHandle NEW_ARRAY_BUILDER = findConstructor("DoubleArrayBuilder");
+    static final MethodHandle BULK_READ_ALL = find("TemperatureBulkReader", "readAll",
+        int.class, java.io.InputStream.class, type("DoubleArrayBuilder"));
+
+    private Targets() {
+    }
+
+    // static method, or instance method (the receiver becomes the first parameter)
+    private static MethodHandle find(String className, String method, Class<?> returnType, Class<?>... parameters) {
+        try {
+            Class<?> target = type(className);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+            MethodType methodType = MethodType.methodType(returnType, parameters);
+            try {
+                return lookup.findStatic(target, method, methodType);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // reference types erased to Object, callers cannot name the default package types
+                MethodHandle handle = lookup.findVirtual(target, method, methodType);
+                return handle.asType(handle.type().erase());
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + method, e);
+        }
+    }
+
+    // no-argument constructor, returns Object
+    private static MethodHandle findConstructor(String className) {
+        try {
+            Class<?> target = type(className);
+            return MethodHandles.privateLookupIn(target, MethodHandles.lookup())
+                .findConstructor(target, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find constructor of " + className, e);
+        }
+    }
+
+    private static Class<?> type(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Missing class " + className, e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+// immutable copy of the seat states of a theatre at one moment (Theatre.getAvailabilitySnapshot)
+// readers share it without locks, it never changes, so the seating chart is drawn at most once per snapshot
+// and every further view of an unchanged show gets the same String
+// the version grows with every new snapshot of the theatre, equal versions = same seat states
+//
+// taken without locks: the theatre's row sequence is odd while a change of more than one word of the row
+// (a group across words, a region, a seat set, a hold) is being written, the rows are copied and the rows whose
+// sequence moved are copied again, so such a change is in the copy completely or not at all
+// (single seat changes are one word anyway)
+public class AvailabilitySnapshot implements SeatStateView {
+    // lock free copy rounds before the row locks are taken
+    private static final int COPY_ROUNDS = 8;
+
+    private final long version;
+    private final int numberOfRows;
+    private final int seatsPerRow;
+    private final int wordsPerRow;
+    // row versions of the theatre the copy was taken at
+    private final int[] rowVersions;
+    private final long[] reservedWords;
+    private final long[] heldWords;
+    private final int freeSeats;
+
+    // drawn on first use, a second thread drawing at the same time just gets an equal String
+    private volatile String seatingChart;
+
+    AvailabilitySnapshot(long version, int numberOfRows, int seatsPerRow, int[] rowVersions,
+                         long[] reservedWords, long[] heldWords) {
+        this.version = version;
+        this.numberOfRows = numberOfRows;
+        this.seatsPerRow = seatsPerRow;
+        this.wordsPerRow = (seatsPerRow + 63) / 64;
+        this.rowVersions = rowVersions;
+        this.reservedWords = reservedWords;
+        this.heldWords = heldWords;
+
+        int taken = 0;
+        for (long word : reservedWords) {
+            taken += Long.bitCount(word);
+        }
+        this.freeSeats = numberOfRows * seatsPerRow - taken;
+    }
+
+    // copy of the theatre's seat states with the given snapshot version
+    static AvailabilitySnapshot take(Theatre theatre, long version) {
+        int numberOfRows = theatre.getNumberOfRows();
+        int[] sequences = new int[numberOfRows];
+        int[] versions = new int[numberOfRows];
+        long[] reserved = new long[theatre.wordCount()];
+        long[] held = new long[theatre.wordCount()];
+        boolean[] stale = new boolean[numberOfRows];
+        Arrays.fill(stale, true);
+
+        boolean consistent = false;
+        for (int round = 0; round < COPY_ROUNDS && !consistent; round++) {
+            for (int row = 1; row <= numberOfRows; row++) {
+                if (stale[row - 1]) {
+                    sequences[row - 1] = theatre.rowSequence(row);
+                    theatre.copyRow(row, versions, reserved, held);
+                }
+            }
+            // all rows unchanged since their copy at the same moment -> every multi word change is in or out
+            consistent = true;
+            for (int row = 1; row <= numberOfRows; row++) {
+                int sequence = theatre.rowSequence(row);
+                stale[row - 1] = (sequence & 1) != 0 || sequence != sequences[row - 1];
+                consistent &= !stale[row - 1];
+            }
+        }
+        if (!consistent) {
+            // too busy to catch a quiet moment, stop the multi word changes for a copy
+            theatre.lockAllRows();
+            try {
+                for (int row = 1; row <= numberOfRows; row++) {
+                    theatre.copyRow(row, versions, reserved, held);
+                }
+            } finally {
+                theatre.unlockAllRows();
+            }
+        }
+        return new AvailabilitySnapshot(version, numberOfRows, theatre.getSeatsPerRow(), versions, reserved, held);
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public int getNumberOfRows() {
+        return this.numberOfRows;
+    }
+
+    @Override
+    public int getSeatsPerRow() {
+        return this.seatsPerRow;
+    }
+
+    public int getFreeSeatCount() {
+        return this.freeSeats;
+    }
+
+    // is seat reserved (held seats are not), invalid positions count as not reserved
+    public boolean isReserved(int rowNumber, int seatNumber) {
+        if (!isValidPosition(rowNumber, seatNumber)) return false;
+        int word = wordIndex(rowNumber, seatNumber);
+        return ((this.reservedWords[word] & ~this.heldWords[word]) >>> (seatNumber - 1) & 1) != 0;
+    }
+
+    public boolean isHeld(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber)
+            && (this.heldWords[wordIndex(rowNumber, seatNumber)] >>> (seatNumber - 1) & 1) != 0;
+    }
+
+    // free = not reserved and not held
+    public boolean isAvailable(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber)
+            && (this.reservedWords[wordIndex(rowNumber, seatNumber)] >>> (seatNumber - 1) & 1) == 0;
+    }
+
+    // full seating chart, same text as Theatre.getSeatingChart, drawn once
+    public String getSeatingChart() {
+        String chart = this.seatingChart;
+        if (chart == null) {
+            chart = new SeatingChartRenderer(this).render();
+            this.seatingChart = chart;
+        }
+        return chart;
+    }
+
+    // reserved words without the held seats (Theatre.copyReservedWords)
+    long[] copyReservedWords() {
+        long[] words = new long[this.reservedWords.length];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = this.reservedWords[i] & ~this.heldWords[i];
+        }
+        return words;
+    }
+
+    @Override
+    public long reservedWord(int rowNumber, int w) {
+        return this.reservedWords[(rowNumber - 1) * this.wordsPerRow + w];
+    }
+
+    @Override
+    public long heldWord(int rowNumber, int w) {
+        return this.heldWords[(rowNumber - 1) * this.wordsPerRow + w];
+    }
+
+    @Override
+    public int rowVersion(int rowNumber) {
+        return this.rowVersions[rowNumber - 1];
+    }
+
+    // true if no row of the theatre changed since this copy
+    boolean isCurrent(Theatre theatre) {
+        for (int row = 1; row <= this.numberOfRows; row++) {
+            if (theatre.rowVersion(row) != this.rowVersions[row - 1]) return false;
+        }
+        return true;
+    }
+
+    private boolean isValidPosition(int rowNumber, int seatNumber) {
+        return rowNumber >= 1 && rowNumber <= this.numberOfRows && seatNumber >= 1 && seatNumber <= this.seatsPerRow;
+    }
+
+    private int wordIndex(int rowNumber, int seatNumber) {
+        return (rowNumber - 1) * this.wordsPerRow + ((seatNumber - 1) >>> 6);
+    }
+}
@@ -0,0 +1,418 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// best available seats: "give me the best 4 seats under $X"
+//
+// every seat has a venue defined quality score and a price (SeatRating), the seats are ranked once by score
+// (best first, ties by row then seat) and the free seats are kept per price tier in a two level bitset over
+// the ranks (one bit per seat plus one summary bit per 64 seats), so the best free seat of a tier is found
+// with a couple of word scans and the best n under a price is a merge of the tiers that are cheap enough
+//
+// the index follows the theatre from its change events: the allocator has its own ChangeFeed, before every
+// request it reads the events published since the last one and, for every seat word they point to, compares the
+// word with the one it saw last (XOR), only the seats that changed are updated; the work per request depends on
+// the changes, not on the size of the theatre, bookings that do not go through the allocator are seen too
+// (an overrun of the feed reads all words again the same way)
+// the chosen seats are committed with Theatre.reserveAll (all or nothing), if one of them was taken in
+// between (its event may not be in yet) their words are read again and the request is tried again
+// requests are serialized on the allocator (they are short), the theatre stays usable by everyone else
+public class BestSeatAllocator implements AutoCloseable {
+
+    // events kept for the allocator between two requests
+    private static final int FEED_CAPACITY = 1 << 14;
+
+    private final Theatre theatre;
+    private final int seatsPerRow;
+    private final int wordsPerRow;
+    private final SeatRating rating;
+
+    // rank 0 = best seat, seat index = (row - 1) * seatsPerRow + (seat - 1)
+    private final int[] seatOfRank;
+    private final int[] rankOfSeat;
+    // distinct prices ascending, tier of every seat
+    private final double[] tierPrices;
+    private final int[] tierOfSeat;
+    // free seats per tier, bit = rank, summary bit = that word of the tier has a free seat
+    private final long[][] freeRanks;
+    private final long[][] freeSummary;
+    // taken words (reserved or held) the index was last brought up to date with, rows one after another
+    private final long[] seenWords;
+    private final ChangeFeed feed;
+    private final ChangeFeed.Subscription changes;
+    // every event: the word of its seat is compared again, an overrun: all words
+    private final ChangeHandler changeHandler = new ChangeHandler() {
+        @Override
+        public void onEvent(long sequence, int rowNumber, int seatNumber, boolean reserved) {
+            syncWord(rowNumber, (seatNumber - 1) >>> 6);
+        }
+
+        @Override
+        public void onOverrun(long firstMissed, long nextSequence) {
+            syncAll();
+        }
+    };
+
+    // constructor, the rating must not change afterwards
+    public BestSeatAllocator(Theatre theatre, SeatRating rating) {
+        if (theatre == null || rating == null) {
+            throw new IllegalArgumentException("Theatre and rating cannot be null");
+        }
+        this.theatre = theatre;
+        this.seatsPerRow = theatre.getSeatsPerRow();
+        this.wordsPerRow = (this.seatsPerRow + 63) / 64;
+        this.rating = rating;
+        int rows = theatre.getNumberOfRows();
+        int seats = theatre.getCapacity();
+
+        // rank the seats, once
+        double[] scores = new double[seats];
+        double[] prices = new double[seats];
+        Integer[] order = new Integer[seats];
+        for (int i = 0; i < seats; i++) {
+            int row = i / this.seatsPerRow + 1;
+            int seat = i % this.seatsPerRow + 1;
+            scores[i] = rating.score(row, seat);
+            prices[i] = rating.price(row, seat);
+            if (Double.isNaN(scores[i]) || Double.isNaN(prices[i]) || prices[i] < 0) {
+                throw new IllegalArgumentException("Invalid rating for seat R" + row + "-S" + seat);
+            }
+            order[i] = i;
+        }
+        // seat index order is row then seat, so equal scores keep that order
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        this.seatOfRank = new int[seats];
+        this.rankOfSeat = new int[seats];
+        for (int rank = 0; rank < seats; rank++) {
+            this.seatOfRank[rank] = order[rank];
+            this.rankOfSeat[order[rank]] = rank;
+        }
+
+        this.tierPrices = Arrays.stream(prices).distinct().sorted().toArray();
+        this.tierOfSeat = new int[seats];
+        for (int i = 0; i < seats; i++) {
+            this.tierOfSeat[i] = Arrays.binarySearch(this.tierPrices, prices[i]);
+        }
+        int words = (seats + 63) >>> 6;
+        this.freeRanks = new long[this.tierPrices.length][words];
+        this.freeSummary = new long[this.tierPrices.length][(words + 63) >>> 6];
+
+        // the index starts with every seat taken, seen as such, the first read frees the free ones
+        // (subscribed first, so a change during that read is an event afterwards)
+        this.seenWords = new long[rows * this.wordsPerRow];
+        for (int i = 0; i < this.seenWords.length; i++) {
+            int seatsInWord = Math.min(64, this.seatsPerRow - (i % this.wordsPerRow) * 64);
+            this.seenWords[i] = seatsInWord == 64 ? -1L : (1L << seatsInWord) - 1;
+        }
+        this.feed = ChangeFeed.attach(theatre, FEED_CAPACITY);
+        this.changes = this.feed.subscribe();
+        syncAll();
+    }
+
+    // ================ requests ================
+    // reserve the count best free seats with a price of at most maxPrice, all or nothing
+    // returns the seats best first, empty list if there are not enough of them
+    public synchronized List<Seat> reserveBestSeats(int count, double maxPrice) {
+        if (count < 1) {
+            return new ArrayList<>();
+        }
+        while (true) {
+            sync();
+            List<Seat> seats = pick(count, maxPrice);
+            if (seats.size() < count) {
+                return new ArrayList<>();
+            }
+            if (this.theatre.reserveAll(seats)) {
+                for (Seat seat : seats) {
+                    seat.reserve();
+                }
+                return seats;
+            }
+            // one of them was taken in between, its event may still be on the way
+            for (Seat seat : seats) {
+                syncWord(seat.getRowNumber(), (seat.getSeatNumber() - 1) >>> 6);
+            }
+        }
+    }
+
+    // the count best free seats with a price of at most maxPrice, without reserving them (may be fewer)
+    public synchronized List<Seat> findBestSeats(int count, double maxPrice) {
+        sync();
+        return pick(count, maxPrice);
+    }
+
+    // stop following the theatre, the allocator cannot be used afterwards
+    @Override
+    public synchronized void close() {
+        this.feed.detach();
+    }
+
+    public double getPrice(int rowNumber, int seatNumber) {
+        return this.tierPrices[this.tierOfSeat[seatIndex(rowNumber, seatNumber)]];
+    }
+
+    public double getScore(int rowNumber, int seatNumber) {
+        seatIndex(rowNumber, seatNumber);
+        return this.rating.score(rowNumber, seatNumber);
+    }
+
+    // distinct prices, cheapest first
+    public double[] getPriceTiers() {
+        return this.tierPrices.clone();
+    }
+
+    // merge of the free seats of all tiers with a price <= maxPrice, by rank
+    private List<Seat> pick(int count, double maxPrice) {
+        List<Seat> seats = new ArrayList<>();
+        int tiers = 0;
+        while (tiers < this.tierPrices.length && this.tierPrices[tiers] <= maxPrice) {
+            tiers++;
+        }
+        int[] next = new int[tiers];
+        for (int t = 0; t < tiers; t++) {
+            next[t] = nextFreeRank(t, 0);
+        }
+
+        while (seats.size() < count) {
+            int best = -1;
+            for (int t = 0; t < tiers; t++) {
+                if (next[t] >= 0 && (best < 0 || next[t] < next[best])) best = t;
+            }
+            if (best < 0) break;
+            int seat = this.seatOfRank[next[best]];
+            seats.add(new Seat(seat / this.seatsPerRow + 1, seat % this.seatsPerRow + 1));
+            next[best] = nextFreeRank(best, next[best] + 1);
+        }
+        return seats;
+    }
+
+    // lowest free rank >= fromRank in the tier, -1 if none
+    private int nextFreeRank(int tier, int fromRank) {
+        long[] bits = this.freeRanks[tier];
+        int word = fromRank >>> 6;
+        if (word >= bits.length) return -1;
+        long found = bits[word] & (-1L << fromRank);
+        if (found != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(found);
+        }
+
+        // next word with a free seat, from the summary
+        long[] summary = this.freeSummary[tier];
+        int fromWord = word + 1;
+        int s = fromWord >>> 6;
+        if (s >= summary.length) return -1;
+        long words = summary[s] & (-1L << fromWord);
+        while (words == 0) {
+            if (++s == summary.length) return -1;
+            words = summary[s];
+        }
+        word = (s << 6) + Long.numberOfTrailingZeros(words);
+        return (word << 6) + Long.numberOfTrailingZeros(bits[word]);
+    }
+
+    // ================ index upkeep ================
+    // apply the events published since the last request
+    private void sync() {
+        this.changes.poll(this.changeHandler, FEED_CAPACITY);
+    }
+
+    private void syncAll() {
+        for (int row = 1; row <= this.theatre.getNumberOfRows(); row++) {
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                syncWord(row, w);
+            }
+        }
+    }
+
+    // compare the taken word with the one seen last, only the seats that changed are updated
+    private void syncWord(int rowNumber, int w) {
+        int i = (rowNumber - 1) * this.wordsPerRow + w;
+        long taken = this.theatre.reservedWord(rowNumber, w);
+        long changed = taken ^ this.seenWords[i];
+        this.seenWords[i] = taken;
+        int firstSeat = (rowNumber - 1) * this.seatsPerRow + w * 64;
+        while (changed != 0) {
+            int bit = Long.numberOfTrailingZeros(changed);
+            setFree(firstSeat + bit, (taken >>> bit & 1) == 0);
+            changed &= changed - 1;
+        }
+    }
+
+    private void setFree(int seat, boolean free) {
+        int tier = this.tierOfSeat[seat];
+        int rank = this.rankOfSeat[seat];
+        long[] bits = this.freeRanks[tier];
+        int word = rank >>> 6;
+        if (free) {
+            bits[word] |= 1L << rank;
+        } else {
+            bits[word] &= ~(1L << rank);
+        }
+        if (bits[word] != 0) {
+            this.freeSummary[tier][word >>> 6] |= 1L << word;
+        } else {
+            this.freeSummary[tier][word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    private int seatIndex(int rowNumber, int seatNumber) {
+        if (rowNumber < 1 || rowNumber > this.theatre.getNumberOfRows() || seatNumber < 1 || seatNumber > this.seatsPerRow) {
+            throw new IndexOutOfBoundsException("Invalid seat: R" + rowNumber + "-S" + seatNumber);
+        }
+        return (rowNumber - 1) * this.seatsPerRow + (seatNumber - 1);
+    }
+
+    // ================ default rating ================
+    // rating for a plain auditorium (row 1 at the screen): the best seats are in the middle of the row, about
+    // two thirds back, the score falls with the distance from there, the prices are score bands, cheapest
+    // band first (e.g. 30, 45, 60, 80 -> the top quarter of the scores costs 80)
+    public static SeatRating centerRating(int numberOfRows, int seatsPerRow, double... bandPrices) {
+        if (bandPrices.length == 0) {
+            throw new IllegalArgumentException("At least one price is needed");
+        }
+        double[] prices = bandPrices.clone();
+        double sweetRow = 1 + (numberOfRows - 1) * 2.0 / 3.0;
+        double sweetSeat = (seatsPerRow + 1) / 2.0;
+        // farthest corner, scores go from 1.0 (sweet spot) to 0.0
+        double maxDistance = Math.max(1.0, Math.hypot(Math.max(sweetRow - 1, numberOfRows - sweetRow) / numberOfRows,
+            (sweetSeat - 1) / seatsPerRow));
+
+        return new SeatRating() {
+            @Override
+            public double score(int rowNumber, int seatNumber) {
+                double distance = Math.hypot((rowNumber - sweetRow) / numberOfRows, (seatNumber - sweetSeat) / seatsPerRow);
+                return 1.0 - Math.min(1.0, distance / maxDistance);
+            }
+
+            @Override
+            public double price(int rowNumber, int seatNumber) {
+                int band = (int) (score(rowNumber, seatNumber) * prices.length);
+                return prices[Math.min(band, prices.length - 1)];
+            }
+        };
+    }
+
+    // demo and check on a 50k seat theatre: results against a brute force ranking, then timing while other
+    // threads book and cancel
+    // usage: java BestSeatAllocator [rows] [seats per row]
+    public static void main(String[] args) throws InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 250;
+        int seatsPerRow = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Theatre theatre = new Theatre(rows, seatsPerRow);
+        SeatRating rating = centerRating(rows, seatsPerRow, 30, 45, 60, 80);
+        BestSeatAllocator allocator = new BestSeatAllocator(theatre, rating);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // correctness, single threaded: some seats taken, held or given back behind the allocator's back, then requests
+        int errors = 0;
+        for (int query = 0; query < 2000; query++) {
+            for (int i = 0; i < 50; i++) {
+                int row = random.nextInt(rows) + 1;
+                int seat = random.nextInt(seatsPerRow) + 1;
+                switch (random.nextInt(5)) {
+                    case 0:
+                        theatre.holdSeat(row, seat);
+                        break;
+                    case 1:
+                        theatre.releaseHold(row, seat);
+                        break;
+                    case 2:
+                        theatre.confirmHold(row, seat);
+                        break;
+                    case 3:
+                        theatre.reserveSeat(row, seat);
+                        break;
+                    default:
+                        theatre.cancelReservation(row, seat);
+                }
+            }
+            int count = random.nextInt(6) + 1;
+            double maxPrice = new double[] {29, 30, 45, 60, 80}[random.nextInt(5)];
+            List<Seat> expected = bruteForce(theatre, rating, count, maxPrice);
+            // found seats are free, only the reserved ones say so
+            for (Seat seat : allocator.findBestSeats(count, maxPrice)) {
+                if (seat.isReserved()) errors++;
+            }
+            List<Seat> got = allocator.reserveBestSeats(count, maxPrice);
+            if (expected.size() < count ? !got.isEmpty() : !sameSeats(expected, got)) errors++;
+            for (Seat seat : got) {
+                if (!seat.isReserved() || !theatre.isReserved(seat.getRowNumber(), seat.getSeatNumber())) errors++;
+            }
+        }
+        System.out.println("==> 2000 requests checked against a brute force ranking, " + errors + " errors");
+
+        // timing with bookers running next to it, the allocated seats are given back so the theatre stays half full
+        long end = System.currentTimeMillis() + 2000;
+        Thread[] bookers = new Thread[3];
+        for (int i = 0; i < bookers.length; i++) {
+            bookers[i] = new Thread(() -> {
+                ThreadLocalRandom local = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < end) {
+                    int row = local.nextInt(rows) + 1;
+                    int seat = local.nextInt(seatsPerRow) + 1;
+                    if (local.nextBoolean()) theatre.reserveSeat(row, seat);
+                    else theatre.cancelReservation(row, seat);
+                }
+            });
+            bookers[i].start();
+        }
+        long requests = 0;
+        long nanos = 0;
+        long worst = 0;
+        while (System.currentTimeMillis() < end) {
+            long start = System.nanoTime();
+            List<Seat> seats = allocator.reserveBestSeats(4, 60);
+            long took = System.nanoTime() - start;
+            nanos += took;
+            worst = Math.max(worst, took);
+            requests++;
+            for (Seat seat : seats) {
+                theatre.cancelReservation(seat.getRowNumber(), seat.getSeatNumber());
+            }
+        }
+        for (Thread booker : bookers) {
+            booker.join();
+        }
+        allocator.close();
+        System.out.printf("==> %,d best-4-under-60 requests on %,d seats, %.1f us average, %.1f us worst%n",
+            requests, rows * seatsPerRow, nanos / 1e3 / requests, worst / 1e3);
+        if (errors > 0) {
+            System.out.println("<!> FAILED");
+            System.exit(1);
+        }
+    }
+
+    // best count free seats by scanning and sorting everything (check only)
+    private static List<Seat> bruteForce(Theatre theatre, SeatRating rating, int count, double maxPrice) {
+        List<Seat> free = new ArrayList<>();
+        for (int row = 1; row <= theatre.getNumberOfRows(); row++) {
+            for (int seat = 1; seat <= theatre.getSeatsPerRow(); seat++) {
+                if (theatre.isAvailable(row, seat) && rating.price(row, seat) <= maxPrice) {
+                    free.add(new Seat(row, seat));
+                }
+            }
+        }
+        free.sort((a, b) -> Double.compare(rating.score(b.getRowNumber(), b.getSeatNumber()),
+            rating.score(a.getRowNumber(), a.getSeatNumber())));
+        return free.subList(0, Math.min(count, free.size()));
+    }
+
+    private static boolean sameSeats(List<Seat> a, List<Seat> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).getRowNumber() != b.get(i).getRowNumber() || a.get(i).getSeatNumber() != b.get(i).getSeatNumber()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
+
+// ======= seat rating interface ========================
+// venue defined quality (higher = better) and price of every seat
+interface SeatRating {
+    double score(int rowNumber, int seatNumber);
+
+    double price(int rowNumber, int seatNumber);
+}
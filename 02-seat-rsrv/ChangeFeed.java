@@ -0,0 +1,306 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// change feed of a theatre: every committed reservation and cancellation is published as one event into a ring
+// buffer (Disruptor style), any number of subscribers read it in batches at their own pace, e.g. to keep a
+// mirror (chart cache, counters, a copy in another process) up to date without polling the chart
+//
+// event = one long: row << 32 | seat, sequence numbers start at 0 and never repeat
+// publishing (called by the theatre right after a change, outside the row lock):
+//  - claim a sequence with one getAndIncrement (there are many producers, every booking thread is one)
+//  - claim the slot sequence & mask with a CAS of its published sequence from the one a lap before to "writing",
+//    so a producer a whole lap ahead waits for the one still writing the slot instead of writing it too
+//  - write the event, then the sequence into the slot's published array
+// the subscriber gets the state of the seat when it reads the event: two changes of one seat by different
+// threads can be published in either order, the state read after both is the latest one either way
+// the feed never waits for subscribers: it is lossy, a subscriber that falls more than capacity events behind
+// finds its slots overwritten and is told about the gap (onOverrun), then it goes on with the oldest event left
+// (a mirror would reload from Theatre.getAvailabilitySnapshot, the events are idempotent so replaying a few
+// that are already in the snapshot does no harm)
+// replay: subscribe(fromSequence) starts at any sequence that is still in the ring
+// holds, their release and expiry are events too (a held seat reads as not reserved, so a mirror of the
+// reservations just sees the same state again), a confirmed hold is a reservation
+public class ChangeFeed implements SeatListener {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    // published value of a slot while it is being written
+    private static final long WRITING = -2;
+
+    private final Theatre theatre;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLongArray events;
+    // sequence of the event in every slot, -1 = never written
+    private final AtomicLongArray published;
+
+    // constructor with the default capacity, attach registers the feed with the theatre
+    public ChangeFeed(Theatre theatre) {
+        this(theatre, DEFAULT_CAPACITY);
+    }
+
+    // constructor, capacity (events kept for slow subscribers and replay) is rounded up to a power of two
+    public ChangeFeed(Theatre theatre, int capacity) {
+        if (theatre == null) {
+            throw new IllegalArgumentException("Theatre cannot be null");
+        }
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.theatre = theatre;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.events = new AtomicLongArray(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.published.set(i, -1);
+        }
+    }
+
+    // feed of the theatre's changes from now on
+    public static ChangeFeed attach(Theatre theatre, int capacity) {
+        ChangeFeed feed = new ChangeFeed(theatre, capacity);
+        theatre.addSeatListener(feed);
+        return feed;
+    }
+
+    // no more events from the theatre, the subscribers can still read what is in the ring
+    public void detach() {
+        this.theatre.removeSeatListener(this);
+    }
+
+    // ================ producers ================
+    @Override
+    public void seatChanged(int rowNumber, int seatNumber, boolean reserved) {
+        publish((long) rowNumber << 32 | seatNumber);
+    }
+
+    @Override
+    public void holdChanged(int rowNumber, int seatNumber, boolean held) {
+        publish((long) rowNumber << 32 | seatNumber);
+    }
+
+    // returns the sequence of the event
+    long publish(long event) {
+        long sequence = this.nextSequence.getAndIncrement();
+        int slot = (int) sequence & this.mask;
+        // the slot still has the event of the last lap (-1 on the first), until its producer is done it does not
+        long lastLap = sequence < this.capacity ? -1 : sequence - this.capacity;
+        while (!this.published.compareAndSet(slot, lastLap, WRITING)) {
+            Thread.yield();
+        }
+        this.events.set(slot, event);
+        this.published.set(slot, sequence);
+        return sequence;
+    }
+
+    // ================ subscribers ================
+    // sequence the next event will get (= number of events published so far, some may still be in writing)
+    public long getCursor() {
+        return this.nextSequence.get();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    // oldest sequence that can still be replayed
+    public long getOldestSequence() {
+        return Math.max(0, getCursor() - this.capacity);
+    }
+
+    // subscriber for the events from now on
+    public Subscription subscribe() {
+        return new Subscription(getCursor());
+    }
+
+    // subscriber that replays from fromSequence on (getOldestSequence .. getCursor)
+    public Subscription subscribe(long fromSequence) {
+        if (fromSequence < getOldestSequence() || fromSequence > getCursor()) {
+            throw new IllegalArgumentException("Sequence " + fromSequence + " is not in the feed ("
+                + getOldestSequence() + " .. " + getCursor() + ")");
+        }
+        return new Subscription(fromSequence);
+    }
+
+    // position of one subscriber in the feed, used by one thread
+    public class Subscription {
+        private long nextSequence;
+        private long missedEvents;
+
+        Subscription(long nextSequence) {
+            this.nextSequence = nextSequence;
+        }
+
+        // hand up to maxBatch events (oldest first) to the handler with the current state of their seat,
+        // returns the number handed over
+        // stops early at an event that is claimed but not written yet, the next poll picks it up
+        public int poll(ChangeHandler handler, int maxBatch) {
+            int handled = 0;
+            while (handled < maxBatch) {
+                long sequence = this.nextSequence;
+                int slot = (int) sequence & ChangeFeed.this.mask;
+                long before = ChangeFeed.this.published.get(slot);
+                if (before == sequence) {
+                    long event = ChangeFeed.this.events.get(slot);
+                    if (ChangeFeed.this.published.get(slot) == sequence) {
+                        int rowNumber = (int) (event >>> 32);
+                        int seatNumber = (int) event;
+                        handler.onEvent(sequence, rowNumber, seatNumber, ChangeFeed.this.theatre.isReserved(rowNumber, seatNumber));
+                        this.nextSequence++;
+                        handled++;
+                        continue;
+                    }
+                } else if (before < sequence && getCursor() - sequence <= ChangeFeed.this.capacity) {
+                    // claimed (or not even that) but not written yet, WRITING is below every sequence too
+                    break;
+                }
+                // overwritten while reading or long ago: skip to the oldest event still in the ring
+                skipTo(Math.max(sequence + 1, getCursor() - ChangeFeed.this.capacity + 1), handler);
+            }
+            return handled;
+        }
+
+        private void skipTo(long sequence, ChangeHandler handler) {
+            this.missedEvents += sequence - this.nextSequence;
+            handler.onOverrun(this.nextSequence, sequence);
+            this.nextSequence = sequence;
+        }
+
+        // sequence of the next event this subscriber reads
+        public long getNextSequence() {
+            return this.nextSequence;
+        }
+
+        // events this subscriber is behind the producers
+        public long getLag() {
+            return getCursor() - this.nextSequence;
+        }
+
+        // events lost to overruns so far
+        public long getMissedEvents() {
+            return this.missedEvents;
+        }
+    }
+
+    // demo and check: booking threads, two mirrors that keep up and a slow subscriber that falls behind
+    // usage: java ChangeFeed [threads] [seconds]
+    public static void main(String[] args) throws InterruptedException {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int rows = 100;
+        int seatsPerRow = 200;
+        Theatre theatre = new Theatre(rows, seatsPerRow);
+        ChangeFeed feed = attach(theatre, DEFAULT_CAPACITY);
+
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        Thread[] bookers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            bookers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < end) {
+                    int row = random.nextInt(rows) + 1;
+                    int seat = random.nextInt(seatsPerRow) + 1;
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            theatre.reserveSeat(row, seat);
+                            break;
+                        case 1:
+                            theatre.cancelReservation(row, seat);
+                            break;
+                        default:
+                            theatre.reserveSeats(row, Math.min(seat, seatsPerRow - 3), 4);
+                    }
+                }
+            });
+        }
+
+        Mirror[] mirrors = {new Mirror(rows, seatsPerRow), new Mirror(rows, seatsPerRow)};
+        Subscription[] subscriptions = {feed.subscribe(), feed.subscribe()};
+        AtomicBoolean bookersDone = new AtomicBoolean();
+        Thread[] readers = new Thread[mirrors.length];
+        for (int i = 0; i < readers.length; i++) {
+            int id = i;
+            readers[i] = new Thread(() -> {
+                // until the bookers are done and every event is read
+                while (!bookersDone.get() || subscriptions[id].getLag() > 0) {
+                    if (subscriptions[id].poll(mirrors[id], 4096) == 0) Thread.yield();
+                }
+            });
+        }
+        // reads a small batch now and then, falls behind and gets overruns
+        Subscription slow = feed.subscribe();
+        Mirror slowMirror = new Mirror(rows, seatsPerRow);
+        Thread slowReader = new Thread(() -> {
+            while (System.currentTimeMillis() < end) {
+                slow.poll(slowMirror, 100);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        for (Thread thread : bookers) thread.start();
+        for (Thread thread : readers) thread.start();
+        slowReader.start();
+        for (Thread thread : bookers) thread.join();
+        bookersDone.set(true);
+        for (Thread thread : readers) thread.join();
+        slowReader.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long events = feed.getCursor();
+        System.out.printf("==> %,d events in %.1f s (%,.0f events/s), ring of %,d%n", events, elapsed, events / elapsed, feed.getCapacity());
+        System.out.printf("==> slow subscriber: %,d overruns, %,d events missed%n", slowMirror.overruns, slow.getMissedEvents());
+        // replay of the events still in the ring must end in the theatre's state for the seats they touch
+        Mirror replayed = new Mirror(rows, seatsPerRow);
+        feed.subscribe(feed.getOldestSequence()).poll(replayed, Integer.MAX_VALUE);
+
+        int errors = 0;
+        for (Mirror mirror : mirrors) {
+            if (mirror.overruns > 0) errors++;
+            for (int row = 1; row <= rows; row++) {
+                for (int seat = 1; seat <= seatsPerRow; seat++) {
+                    if (mirror.reserved[row][seat] != theatre.isReserved(row, seat)) errors++;
+                    if (replayed.touched[row][seat] && replayed.reserved[row][seat] != theatre.isReserved(row, seat)) errors++;
+                }
+            }
+        }
+        if (errors == 0) {
+            System.out.println("==> OK, both mirrors and the replay match the theatre");
+        } else {
+            System.out.println("<!> FAILED, " + errors + " differences");
+            System.exit(1);
+        }
+    }
+
+    // seat states rebuilt from events
+    private static class Mirror implements ChangeHandler {
+        private final boolean[][] reserved;
+        private final boolean[][] touched;
+        private long overruns;
+
+        Mirror(int rows, int seatsPerRow) {
+            this.reserved = new boolean[rows + 1][seatsPerRow + 1];
+            this.touched = new boolean[rows + 1][seatsPerRow + 1];
+        }
+
+        @Override
+        public void onEvent(long sequence, int rowNumber, int seatNumber, boolean reserved) {
+            this.reserved[rowNumber][seatNumber] = reserved;
+            this.touched[rowNumber][seatNumber] = true;
+        }
+
+        @Override
+        public void onOverrun(long firstMissed, long nextSequence) {
+            this.overruns++;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+// receives the events of a ChangeFeed subscription, reserved = state of the seat when the event is read
+public interface ChangeHandler {
+    void onEvent(long sequence, int rowNumber, int seatNumber, boolean reserved);
+
+    // events firstMissed .. nextSequence - 1 were overwritten before they were read
+    void onOverrun(long firstMissed, long nextSequence);
+}
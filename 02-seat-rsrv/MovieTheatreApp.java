@@ -1,5 +1,3 @@
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 
 public class MovieTheatreApp {
@@ -172,276 +170,3 @@ public class MovieTheatreApp {
         }
     }
 }
-
-// ========================= CLASSES ===========================
-// ===== single seat class =========
-class Seat {
-    private int rowNumber;
-    private int seatNumber;
-    private boolean isReserved;
-
-    // constructor
-    public Seat(int rowNumber, int seatNumber) {
-        this.rowNumber = rowNumber;
-        this.seatNumber = seatNumber;
-        this.isReserved = false;
-    }
-
-    // is seat reserved getter
-    public boolean isReserved() {
-        return this.isReserved;
-    }
-
-    // reserve setter
-    public void reserve() {
-        this.isReserved = true;
-    }
-
-    // cancel reserve setter
-    public void cancel() {
-        this.isReserved = false;
-    }
-
-    // overloaded toString method
-    public String toString(boolean verbose) {
-        return verbose 
-            ? "Row: " + this.rowNumber + ", Seat: " + this.seatNumber + ", Reserved: " + (isReserved ? "Yes" : "No")
-            : "R" + this.rowNumber + "-S" + this.seatNumber;
-    }
-
-    // toString method for seat
-    @Override
-    public String toString() {
-        // default to verbose details
-        return toString(true);
-    }
-
-}
-
-// ======= movie theatre class ========================
-// theatre class, contaiting single seats
-class Theatre {
-    private int numberOfRows;
-    private int seatsPerRow;
-    private Seat[][] seats;
-
-    // constructor rows-x-columns
-    public Theatre(int numberOfRows, int seatsPerRow) {
-        this.numberOfRows = numberOfRows;
-        this.seatsPerRow = seatsPerRow;
-        this.seats = new Seat[this.numberOfRows][this.seatsPerRow];
-
-        // initialize seats
-        for (int i = 0; i < numberOfRows; i++) {
-            for (int j = 0; j < seatsPerRow; j++) {
-                this.seats[i][j] = new Seat(i + 1, j + 1);
-            }
-        }
-    }
-
-    // getter for number of rows
-    public int getNumberOfRows() {
-        return this.numberOfRows;
-    }
-
-    // getter for number of seats per row
-    public int getSeatsPerRow() {
-        return this.seatsPerRow;
-    }
-
-    // reserve seat method
-    public boolean reserveSeat(int rowNumber, int seatNumber) {
-        if (isValidPosition(rowNumber, seatNumber)) {
-            Seat seat = this.seats[rowNumber-1][seatNumber-1];
-            if (!seat.isReserved()) {
-                seat.reserve();
-                return true;
-            }
-        }
-        return false;
-    }
-
-    // cancel reservation method
-    public boolean cancelReservation(int rowNumber, int seatNumber) {
-        if (isValidPosition(rowNumber, seatNumber)) {
-            Seat seat = this.seats[rowNumber-1][seatNumber-1];
-            if (seat.isReserved()) {
-                seat.cancel();
-                return true;
-            }
-        }
-        return false;
-    }
-
-    // overload find nearby available seats method without bounds
-    public List<Seat> findNearbyAvailableSeats(int preferredRow, int preferredColumn) {
-        return findNearbyAvailableSeats(preferredRow, preferredColumn, 1);
-    }
-
-    // find nearest available seats, returns list for nearby available seats
-    public List<Seat> findNearbyAvailableSeats(int preferredRow, int preferredColumn, int distance) {
-        List<Seat> availableSeats = new ArrayList<>();
-        
-        // checking 3x3 grid around preferred seat
-        for (int i = preferredRow - distance; i <= preferredRow + distance; i++) {
-            for (int j = preferredColumn - distance; j <= preferredColumn + distance; j++) {
-                
-                // skip the preferred seat itself (since it's already taken anyway)
-                if (i == preferredRow && j == preferredColumn) continue;
-                
-                if (isValidPosition(i, j) && !seats[i-1][j-1].isReserved()) {
-                    availableSeats.add(seats[i-1][j-1]);
-                }
-            }
-        }
-        
-        return availableSeats;
-    }
-
-    // private mathod to ensure order of values, swap if needed
-    private void ensureOrder(int[] values) {
-        if (values[0] > values[1]) {
-            int temp = values[0];
-            values[0] = values[1];
-            values[1] = temp;
-        }
-    }
-
-    // overload get seating chart method without bounds
-    public String getSeatingChart() {
-        return getSeatingChart(1, this.numberOfRows, 1, this.seatsPerRow);
-    }
-    
-    // get seating chart method with bounds
-    public String getSeatingChart(int beginRow, int endRow, int beginSeat, int endSeat) {
-
-        // validate and adjust bounds
-        int startRow = Math.max(1, Math.min(beginRow, numberOfRows));
-        int stopRow = Math.max(1, Math.min(endRow, numberOfRows));
-        int startSeat = Math.max(1, Math.min(beginSeat, seatsPerRow));
-        int stopSeat = Math.max(1, Math.min(endSeat, seatsPerRow));
-        
-        // ensure start <= stop for both rows and seats
-        ensureOrder(new int[]{startRow, stopRow});
-        ensureOrder(new int[]{startSeat, stopSeat});
-
-        final String CHART_OFFSET = "    ";
-        
-        String chart = "";
-                
-        // print top seat numbers (column headers)
-        chart += CHART_OFFSET + " ";
-        for (int j = startSeat; j <= stopSeat; j++) {
-            chart += String.format(" %-2d", j);
-        }
-        chart += "\n";
-        
-        // top border
-        chart += CHART_OFFSET + "-" + "---".repeat(stopSeat - startSeat + 1) + "-\n";
-        
-        // print each row with row numbers on both sides (from top to bottom)
-        for (int i = stopRow; i >= startRow; i--) {
-            // Left row number
-            chart += String.format("%2d | ", i);
-            
-            // seat status
-            for (int j = startSeat; j <= stopSeat; j++) {
-                chart += seats[i - 1][j - 1].isReserved() ? "(X)" : " O ";
-            }
-            
-            // right row number
-            String format = numberOfRows < 10 ? "%1d" : "%2d";
-            chart += String.format(" | " + format, i);
-            chart += "\n";
-        }
-        
-        // bottom border
-        chart += CHART_OFFSET + "-" + "---".repeat(stopSeat - startSeat + 1) + "-\n";
-        
-        // print bottom seat numbers (column footers)
-        chart += CHART_OFFSET + " ";
-        for (int j = startSeat; j <= stopSeat; j++) {
-            chart += String.format(" %-2d", j);
-        }        
-        
-        return chart;
-    }
-
-    // valid position checker, helper method
-    public boolean isValidPosition(int rowNumber, int seatNumber) {
-        return rowNumber > 0 && rowNumber <= this.numberOfRows && seatNumber > 0 && seatNumber <= this.seatsPerRow;
-    }
- 
-}
-
-// =========== reservation service class ==============================
-class ReservationService {
-    private Theatre theatre;
-
-    public ReservationService(Theatre theatre) {
-        this.theatre = theatre;
-    }
-
-    // overload reserve seats method without distance
-    public String reserveSeat(int rowNumber, int seatNumber) {
-        return reserveSeat(rowNumber, seatNumber, 1);
-    }
-
-    // reserve seats method with distance
-    public String reserveSeat(int rowNumber, int seatNumber, int distance) {
-
-        final String SEAT_POSITION_FORMAT = "Seat %d in row %d";
-        final String MESSAGE_PREFIX = "\n--> ";
-
-        if (!theatre.isValidPosition(rowNumber, seatNumber)) {
-            return "Invalid seat position.";
-        }
-
-        if (theatre.reserveSeat(rowNumber, seatNumber)) {
-            return String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " has been successfully reserved!", seatNumber, rowNumber);
-        } else {
-            List<Seat> availableSeats = theatre.findNearbyAvailableSeats(rowNumber, seatNumber, distance);
-            
-            if (availableSeats.isEmpty()) {
-                return String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " is taken, and no available seats nearby.", seatNumber, rowNumber);
-            } else {
-
-                String result = String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " is taken.\n\nAvailable nearby seats: ", seatNumber, rowNumber);
-
-                int i = 0;
-                for (Seat seat : availableSeats) {
-                    result += seat.toString(false);
-                    if (i < availableSeats.size() - 1) {
-                        result += ", ";
-                    }
-                    i++;
-                }
-
-                result += "\n\n" 
-                    + theatre.getSeatingChart(rowNumber - distance, rowNumber + distance, seatNumber - distance, seatNumber + distance) 
-                    + "\n";
-
-                return result;
-            }
-        }
-    }
-
-    // cancel reservation method
-    public String cancelReservation(int rowNumber, int seatNumber) {
-
-        if (!theatre.isValidPosition(rowNumber, seatNumber)) {
-            return "<!> Invalid seat position.";
-        }
-
-        if (theatre.cancelReservation(rowNumber, seatNumber)) {
-            return "--> Reservation cancelled successfully!";
-        } else {
-            return "<!> No reservation found at this seat.";
-        }
-    }
-
-    // view seating chart method
-    public String viewSeatingChart() {
-        return theatre.getSeatingChart();
-    }
-}
\ No newline at end of file
@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// occupancy numbers of one theatre for the sales dashboard: seats left per show, per row and per zone,
+// the largest free block of a row and the fill rate over time
+//
+// nothing here scans the seat map: the theatre keeps per row counters that change with every reservation,
+// cancellation and hold (O(1)), a zone is a named range of rows and just adds up the counters of its rows,
+// the largest free block comes from the theatre's per row cache (recomputed only for rows that changed)
+// all reads are lock free, a value read during a booking may be one change behind
+// the fill rate history is a ring of samples, taken by sample() or by the sampler thread (start)
+public class OccupancyTracker implements AutoCloseable {
+
+    public static final int DEFAULT_HISTORY_SIZE = 720;
+
+    private final Theatre theatre;
+    // copy on write, zones are defined rarely and read all the time
+    private volatile Zone[] zones = new Zone[0];
+
+    // fill rate ring, guarded by this
+    private final long[] sampleTimes;
+    private final double[] sampleRates;
+    private int sampleHead;
+    private int sampleCount;
+
+    private Thread sampler;
+    private volatile boolean running;
+
+    // constructor with the default history (e.g. 12 hours of one sample a minute)
+    public OccupancyTracker(Theatre theatre) {
+        this(theatre, DEFAULT_HISTORY_SIZE);
+    }
+
+    // constructor, historySize = number of fill rate samples kept
+    public OccupancyTracker(Theatre theatre, int historySize) {
+        if (theatre == null) {
+            throw new IllegalArgumentException("Theatre cannot be null");
+        }
+        if (historySize < 1) {
+            throw new IllegalArgumentException("Invalid history size: " + historySize);
+        }
+        this.theatre = theatre;
+        this.sampleTimes = new long[historySize];
+        this.sampleRates = new double[historySize];
+    }
+
+    // ================ zones ================
+    // add a zone (e.g. "Stalls" rows 1..10), zones may overlap, names must be unique
+    public synchronized void addZone(String name, int firstRow, int lastRow) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Zone name cannot be empty");
+        }
+        if (firstRow < 1 || lastRow > this.theatre.getNumberOfRows() || firstRow > lastRow) {
+            throw new IllegalArgumentException("Invalid zone rows: " + firstRow + ".." + lastRow);
+        }
+        if (findZone(name) != null) {
+            throw new IllegalArgumentException("Zone already exists: " + name);
+        }
+        Zone[] updated = Arrays.copyOf(this.zones, this.zones.length + 1);
+        updated[updated.length - 1] = new Zone(name, firstRow, lastRow);
+        this.zones = updated;
+    }
+
+    public List<String> getZoneNames() {
+        List<String> names = new ArrayList<>();
+        for (Zone zone : this.zones) {
+            names.add(zone.name);
+        }
+        return names;
+    }
+
+    public int getZoneCapacity(String zone) {
+        Zone found = requireZone(zone);
+        return (found.lastRow - found.firstRow + 1) * this.theatre.getSeatsPerRow();
+    }
+
+    public int getZoneSeatsLeft(String zone) {
+        Zone found = requireZone(zone);
+        int free = 0;
+        for (int row = found.firstRow; row <= found.lastRow; row++) {
+            free += this.theatre.getFreeSeatCount(row);
+        }
+        return free;
+    }
+
+    // reserved share of the zone, 0.0 .. 1.0
+    public double getZoneFillRate(String zone) {
+        Zone found = requireZone(zone);
+        int reserved = 0;
+        for (int row = found.firstRow; row <= found.lastRow; row++) {
+            reserved += this.theatre.getReservedSeatCount(row);
+        }
+        return (double) reserved / getZoneCapacity(zone);
+    }
+
+    // largest block of adjacent free seats in any row of the zone
+    public int getZoneLargestFreeBlock(String zone) {
+        Zone found = requireZone(zone);
+        int largest = 0;
+        for (int row = found.firstRow; row <= found.lastRow; row++) {
+            largest = Math.max(largest, this.theatre.largestFreeRun(row));
+        }
+        return largest;
+    }
+
+    private Zone requireZone(String name) {
+        Zone zone = findZone(name);
+        if (zone == null) {
+            throw new IllegalArgumentException("Unknown zone: " + name);
+        }
+        return zone;
+    }
+
+    private Zone findZone(String name) {
+        for (Zone zone : this.zones) {
+            if (zone.name.equals(name)) return zone;
+        }
+        return null;
+    }
+
+    // ================ show and rows ================
+    public int getSeatsLeft() {
+        return this.theatre.getFreeSeatCount();
+    }
+
+    public int getHeldSeats() {
+        return this.theatre.getHeldSeatCount();
+    }
+
+    // reserved share of the show, 0.0 .. 1.0 (held seats are not sold yet)
+    public double getFillRate() {
+        return (double) this.theatre.getReservedSeatCount() / this.theatre.getCapacity();
+    }
+
+    public int getRowSeatsLeft(int rowNumber) {
+        return this.theatre.getFreeSeatCount(rowNumber);
+    }
+
+    public double getRowFillRate(int rowNumber) {
+        return (double) this.theatre.getReservedSeatCount(rowNumber) / this.theatre.getSeatsPerRow();
+    }
+
+    public int getLargestFreeBlock(int rowNumber) {
+        if (rowNumber < 1 || rowNumber > this.theatre.getNumberOfRows()) {
+            throw new IndexOutOfBoundsException("Invalid row: " + rowNumber);
+        }
+        return this.theatre.largestFreeRun(rowNumber);
+    }
+
+    // ================ fill rate over time ================
+    // record the current fill rate, timestamps must not go backwards
+    public synchronized void sample(long timestampMillis) {
+        if (this.sampleCount > 0 && timestampMillis < this.sampleTimes[sampleSlot(this.sampleCount - 1)]) {
+            throw new IllegalArgumentException("Timestamps must not go backwards: " + timestampMillis);
+        }
+        int slot;
+        if (this.sampleCount < this.sampleTimes.length) {
+            slot = sampleSlot(this.sampleCount++);
+        } else {
+            // full, overwrite the oldest
+            slot = this.sampleHead;
+            this.sampleHead = (this.sampleHead + 1) % this.sampleTimes.length;
+        }
+        this.sampleTimes[slot] = timestampMillis;
+        this.sampleRates[slot] = getFillRate();
+    }
+
+    // samples oldest first
+    public synchronized List<FillRateSample> getFillRateHistory() {
+        List<FillRateSample> history = new ArrayList<>(this.sampleCount);
+        for (int i = 0; i < this.sampleCount; i++) {
+            int slot = sampleSlot(i);
+            history.add(new FillRateSample(this.sampleTimes[slot], this.sampleRates[slot]));
+        }
+        return history;
+    }
+
+    // change of the fill rate per hour over the kept samples, NaN with less than two samples
+    public synchronized double getFillRatePerHour() {
+        if (this.sampleCount < 2) return Double.NaN;
+        int first = sampleSlot(0);
+        int last = sampleSlot(this.sampleCount - 1);
+        long millis = this.sampleTimes[last] - this.sampleTimes[first];
+        if (millis == 0) return Double.NaN;
+        return (this.sampleRates[last] - this.sampleRates[first]) * 3_600_000.0 / millis;
+    }
+
+    private int sampleSlot(int index) {
+        return (this.sampleHead + index) % this.sampleTimes.length;
+    }
+
+    // start the sampler thread, one sample every intervalMillis
+    public synchronized void start(long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Invalid interval: " + intervalMillis + " ms");
+        }
+        if (this.sampler != null) {
+            throw new IllegalStateException("Already started");
+        }
+        this.running = true;
+        this.sampler = new Thread(() -> {
+            while (this.running) {
+                sample(System.currentTimeMillis());
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }, "occupancy-sampler");
+        this.sampler.setDaemon(true);
+        this.sampler.start();
+    }
+
+    // stop the sampler thread
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            this.running = false;
+            running = this.sampler;
+            this.sampler = null;
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // named range of rows
+    private static class Zone {
+        private final String name;
+        private final int firstRow;
+        private final int lastRow;
+
+        Zone(String name, int firstRow, int lastRow) {
+            this.name = name;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+    }
+
+    // demo: booking threads next to a dashboard thread that polls the numbers, then a check against a full scan
+    // usage: java OccupancyTracker [threads] [seconds]
+    public static void main(String[] args) throws InterruptedException {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int rows = 100;
+        int seatsPerRow = 500;
+        Theatre theatre = new Theatre(rows, seatsPerRow);
+        OccupancyTracker tracker = new OccupancyTracker(theatre);
+        tracker.addZone("Stalls", 1, 60);
+        tracker.addZone("Circle", 61, 90);
+        tracker.addZone("Balcony", 91, 100);
+
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        Thread[] bookers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            bookers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < end) {
+                    for (int batch = 0; batch < 1024; batch++) {
+                        int row = random.nextInt(rows) + 1;
+                        int seat = random.nextInt(seatsPerRow) + 1;
+                        // fills up slowly: 3 reservations for every 2 cancellations
+                        if (random.nextInt(5) < 3) {
+                            theatre.reserveSeat(row, seat);
+                        } else {
+                            theatre.cancelReservation(row, seat);
+                        }
+                    }
+                }
+            });
+            bookers[i].start();
+        }
+
+        long polls = 0;
+        long pollNanos = 0;
+        long nextSample = 0;
+        while (System.currentTimeMillis() < end) {
+            long start = System.nanoTime();
+            tracker.getSeatsLeft();
+            for (String zone : tracker.getZoneNames()) {
+                tracker.getZoneSeatsLeft(zone);
+            }
+            for (int row = 1; row <= rows; row++) {
+                tracker.getRowSeatsLeft(row);
+                tracker.getLargestFreeBlock(row);
+            }
+            pollNanos += System.nanoTime() - start;
+            polls++;
+
+            long now = System.currentTimeMillis();
+            if (now >= nextSample) {
+                tracker.sample(now);
+                nextSample = now + 250;
+            }
+        }
+        for (Thread booker : bookers) {
+            booker.join();
+        }
+        tracker.sample(System.currentTimeMillis());
+
+        System.out.printf("==> %,d dashboard polls (show, 3 zones, 100 rows + free blocks) at %.1f us each%n",
+            polls, pollNanos / 1e3 / polls);
+        List<FillRateSample> history = tracker.getFillRateHistory();
+        System.out.printf("==> %,d seats left, fill rate %.1f %% (%d samples, first %s)%n",
+            tracker.getSeatsLeft(), tracker.getFillRate() * 100, history.size(), history.get(0));
+        for (String zone : tracker.getZoneNames()) {
+            System.out.printf("    %-8s %,6d left, %.1f %% full, largest free block %d%n", zone,
+                tracker.getZoneSeatsLeft(zone), tracker.getZoneFillRate(zone) * 100, tracker.getZoneLargestFreeBlock(zone));
+        }
+
+        // the counters must match a full scan once the bookers are done
+        int errors = 0;
+        int free = 0;
+        for (int row = 1; row <= rows; row++) {
+            int rowFree = 0;
+            int run = 0;
+            int largest = 0;
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                if (theatre.isReserved(row, seat)) {
+                    run = 0;
+                } else {
+                    rowFree++;
+                    largest = Math.max(largest, ++run);
+                }
+            }
+            if (rowFree != tracker.getRowSeatsLeft(row) || largest != tracker.getLargestFreeBlock(row)) errors++;
+            free += rowFree;
+        }
+        if (free != tracker.getSeatsLeft()) errors++;
+        if (errors == 0) {
+            System.out.println("==> OK, counters match the seat map");
+        } else {
+            System.out.println("<!> FAILED, " + errors + " counters differ from the seat map");
+            System.exit(1);
+        }
+    }
+}
+
+// ======= fill rate sample class ========================
+// fill rate (0.0 .. 1.0) of a show at a point in time
+class FillRateSample {
+    private long timestampMillis;
+    private double fillRate;
+
+    public FillRateSample(long timestampMillis, double fillRate) {
+        this.timestampMillis = timestampMillis;
+        this.fillRate = fillRate;
+    }
+
+    public long getTimestampMillis() {
+        return this.timestampMillis;
+    }
+
+    public double getFillRate() {
+        return this.fillRate;
+    }
+
+    @Override
+    public String toString() {
+        return this.timestampMillis + ": " + String.format("%.1f %%", this.fillRate * 100);
+    }
+}
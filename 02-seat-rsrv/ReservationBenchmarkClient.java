@@ -0,0 +1,127 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// latency benchmark for ReservationServer: starts the server in this JVM once with platform threads and once
+// with virtual threads, opens many client connections at the same time and sends RESERVE / CANCEL requests
+// (one outstanding request per connection), then prints throughput and p50 / p99 / max latency
+// usage: java ReservationBenchmarkClient [connections] [requests per connection] [shows] [server platform threads]
+public class ReservationBenchmarkClient {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int shows = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int platformThreads = args.length > 3 ? Integer.parseInt(args[3]) : ReservationServer.DEFAULT_PLATFORM_THREADS;
+
+        System.out.println("==> " + connections + " connections x " + requests + " requests, " + shows + " shows");
+        System.out.printf("%-28s %12s %10s %10s %10s %9s%n", "model", "requests/s", "p50 us", "p99 us", "max us", "rejected");
+        run("platform (" + platformThreads + " threads)", false, connections, requests, shows, platformThreads);
+        if (ReservationServer.isVirtualThreadsAvailable()) {
+            run("virtual", true, connections, requests, shows, platformThreads);
+        } else {
+            System.out.println("virtual threads are not available in this JVM (Java 21+ needed), skipped");
+        }
+    }
+
+    private static void run(String name, boolean virtual, int connections, int requests, int shows, int platformThreads)
+            throws Exception {
+        ShowRegistry registry = new ShowRegistry();
+        for (int id = 1; id <= shows; id++) {
+            registry.addShow(id, "Auditorium " + id, 10, 20);
+        }
+
+        try (ReservationServer server = new ReservationServer(registry, 0, virtual, platformThreads,
+                ReservationServer.DEFAULT_MAX_CONNECTIONS, ReservationServer.DEFAULT_MAX_IN_FLIGHT)) {
+            int port = server.start();
+
+            // every client connection needs its own thread, virtual if the server model is virtual
+            ExecutorService clients = ReservationServer.newExecutor(virtual, connections);
+            long[][] latencies = new long[connections][];
+            AtomicInteger rejected = new AtomicInteger();
+            CountDownLatch connected = new CountDownLatch(connections);
+            CountDownLatch go = new CountDownLatch(1);
+
+            for (int c = 0; c < connections; c++) {
+                int client = c;
+                clients.execute(() -> latencies[client] = runClient(port, requests, shows, connected, go, rejected));
+            }
+            connected.await();
+            long start = System.nanoTime();
+            go.countDown();
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.HOURS);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            // merge and sort all latencies for the percentiles
+            int total = 0;
+            for (long[] clientLatencies : latencies) {
+                total += clientLatencies == null ? 0 : clientLatencies.length;
+            }
+            long[] all = new long[total];
+            int position = 0;
+            for (long[] clientLatencies : latencies) {
+                if (clientLatencies == null) continue;
+                System.arraycopy(clientLatencies, 0, all, position, clientLatencies.length);
+                position += clientLatencies.length;
+            }
+            Arrays.sort(all);
+
+            System.out.printf("%-28s %,12.0f %,10.1f %,10.1f %,10.1f %9d%n", name, total / elapsed,
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, (total > 0 ? all[total - 1] : 0) / 1e3, rejected.get());
+        }
+    }
+
+    // one client connection, returns the latency of every request in nanoseconds (empty if rejected)
+    private static long[] runClient(int port, int requests, int shows, CountDownLatch connected, CountDownLatch go,
+                                    AtomicInteger rejected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[requests];
+        int done = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            connected.countDown();
+            go.await();
+
+            for (; done < requests; done++) {
+                String command = (done % 2 == 0 ? "RESERVE " : "CANCEL ") + (random.nextInt(shows) + 1)
+                    + " " + (random.nextInt(10) + 1) + " " + (random.nextInt(20) + 1) + "\n";
+                long begin = System.nanoTime();
+                out.write(command);
+                out.flush();
+                String response = in.readLine();
+                latencies[done] = System.nanoTime() - begin;
+                if (response == null || response.equals("BUSY")) {
+                    rejected.incrementAndGet();
+                    break;
+                }
+            }
+            out.write("QUIT\n");
+            out.flush();
+            in.readLine();
+        } catch (IOException | InterruptedException e) {
+            System.err.println("<!> Client error: " + e.getMessage());
+            connected.countDown();
+        }
+        return Arrays.copyOf(latencies, done);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,602 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// write-ahead journal plus snapshots, so the reservations of a Theatre survive a restart
+//
+// every committed seat change (SeatListener) is staged without a lock: the booking thread claims a sequence
+// (one CAS) and puts the seat into a ring slot, one writer thread takes the staged seats in sequence order,
+// writes one 16 byte record per seat to the journal file with a FileChannel and forces it to disk:
+//  - group commit (fsync batching on): everything staged while the last force was running goes out with one
+//    write + force, so the cost of a force is shared by all threads waiting for it
+//  - fsync batching off: one record per write + force
+// the reserve / cancel methods of this class return once their change is on disk
+//
+// a record holds the state of the seat when the writer reads it, not the state the change left: two changes of
+// one seat by different threads can be staged in either order, but the seat is read after both were made, so the
+// last record of a seat always has its latest state (a held seat is written as not reserved, holds are not kept)
+//
+// files in the directory, g = generation:
+//   snapshot-g.bin   seat words of the theatre at the start of journal g (written to .tmp, then renamed)
+//   journal-g.log    records after that snapshot
+// every snapshotEveryEvents records the journal is rotated to a new generation and a snapshot is written,
+// older files are deleted once the new snapshot is on disk, so recovery (newest snapshot + replay of the
+// journals from that generation on) never replays more than about one snapshot interval
+// the rotation point is the claimed sequence before the seats are copied: a change missing from the copy was
+// made after it, so it is staged after it too and lands in the new generation
+// a torn record at the end of a journal (crash during a write) ends the replay of that journal
+//
+// all changes to the theatre must go through this journal (or the theatre with this journal as its listener)
+public class ReservationJournal implements AutoCloseable {
+
+    public static final int DEFAULT_SNAPSHOT_EVERY_EVENTS = 1_000_000;
+
+    private static final int RECORD_SIZE = 16;
+    private static final int RECORD_MAGIC = 0x4A524E4C; // "JRNL"
+    private static final int SNAPSHOT_MAGIC = 0x534E4150; // "SNAP"
+    private static final int SNAPSHOT_HEADER_SIZE = 24;
+    private static final int BUFFER_SIZE = RECORD_SIZE * 8192;
+    // staged seats, one record each
+    private static final int STAGING_SIZE = BUFFER_SIZE / RECORD_SIZE;
+    private static final int STAGING_MASK = STAGING_SIZE - 1;
+    // claimed bit set by the writer when it takes no more records (closed or failed)
+    private static final long CLAIMS_CLOSED = 1L << 62;
+    // longest sleep of the idle writer, appends wake it up right away
+    private static final long WRITER_PARK_NANOS = 10_000_000L;
+
+    private final Path directory;
+    private final Theatre theatre;
+    private final boolean groupCommit;
+    private final int snapshotEveryEvents;
+
+    // staging ring: a sequence is claimed, the seat (row << 32 | seat) goes into slot sequence & STAGING_MASK,
+    // then the sequence into stagedSequences (-1 = never), a slot is reused once the writer took its seat
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLongArray stagedSeats = new AtomicLongArray(STAGING_SIZE);
+    private final AtomicLongArray stagedSequences = new AtomicLongArray(STAGING_SIZE);
+    // sequences taken out of the ring by the writer
+    private volatile long consumedSequence;
+
+    // the fields below are guarded by lock, the flags are also read without it, the channel is the writer's
+    private final Object lock = new Object();
+    private long durableSequence;
+    private int generation;
+    private long eventsSinceSnapshot;
+    private boolean snapshotRunning;
+    // set by a snapshot: the records before it end the current generation, then the journal is rotated (-1 = none)
+    private long rotationSequence = -1;
+    private volatile IOException writeError;
+    private volatile boolean running = true;
+    private volatile boolean writerDone;
+
+    private FileChannel channel;
+    private final Thread writer;
+    // listener on the theatre, appends every committed change
+    private final SeatListener appender = this::append;
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor();
+    private long recoveredEvents;
+
+    private ReservationJournal(Path directory, Theatre theatre, boolean groupCommit, int snapshotEveryEvents) {
+        this.directory = directory;
+        this.theatre = theatre;
+        this.groupCommit = groupCommit;
+        this.snapshotEveryEvents = snapshotEveryEvents;
+        this.writer = new Thread(this::writeLoop, "reservation-journal-writer");
+        this.writer.setDaemon(true);
+        for (int i = 0; i < STAGING_SIZE; i++) {
+            this.stagedSequences.set(i, -1);
+        }
+    }
+
+    // open the journal in directory (created if needed) for an empty theatre of the right size:
+    // restores the newest snapshot, replays the journals after it, writes a fresh snapshot and starts journaling
+    public static ReservationJournal open(Path directory, Theatre theatre, boolean groupCommit) throws IOException {
+        return open(directory, theatre, groupCommit, DEFAULT_SNAPSHOT_EVERY_EVENTS);
+    }
+
+    public static ReservationJournal open(Path directory, Theatre theatre, boolean groupCommit, int snapshotEveryEvents)
+            throws IOException {
+        if (snapshotEveryEvents < 1) {
+            throw new IllegalArgumentException("Invalid snapshot interval: " + snapshotEveryEvents);
+        }
+        Files.createDirectories(directory);
+        ReservationJournal journal = new ReservationJournal(directory, theatre, groupCommit, snapshotEveryEvents);
+        journal.recover();
+        theatre.addSeatListener(journal.appender);
+        journal.writer.start();
+        return journal;
+    }
+
+    // ================ operations ================
+    // reserve a seat, returns once the reservation is durable
+    public boolean reserveSeat(int rowNumber, int seatNumber) throws IOException {
+        boolean reserved = this.theatre.reserveSeat(rowNumber, seatNumber);
+        if (reserved) sync();
+        return reserved;
+    }
+
+    // cancel a reservation, returns once the cancellation is durable
+    public boolean cancelReservation(int rowNumber, int seatNumber) throws IOException {
+        boolean cancelled = this.theatre.cancelReservation(rowNumber, seatNumber);
+        if (cancelled) sync();
+        return cancelled;
+    }
+
+    // adjacent seats, all or nothing, returns once the group is durable
+    public boolean reserveSeats(int rowNumber, int firstSeat, int count) throws IOException {
+        boolean reserved = this.theatre.reserveSeats(rowNumber, firstSeat, count);
+        if (reserved) sync();
+        return reserved;
+    }
+
+    // first row with count adjacent free seats, all or nothing, returns once the group is durable
+    public List<Seat> reserveGroup(int count) throws IOException {
+        List<Seat> seats = this.theatre.reserveGroup(count, 1, this.theatre.getNumberOfRows());
+        if (!seats.isEmpty()) sync();
+        return seats;
+    }
+
+    // wait until every change staged so far is on disk (after changes made on the theatre directly)
+    public void sync() throws IOException {
+        long target = this.claimed.get() & ~CLAIMS_CLOSED;
+        boolean interrupted = false;
+        try {
+            synchronized (this.lock) {
+                while (this.durableSequence < target) {
+                    if (this.writeError != null) throw new IOException("Journal write failed", this.writeError);
+                    if (this.writerDone) throw new IOException("Journal is closed");
+                    interrupted |= waitForLock();
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    // number of records replayed by the last recovery
+    public long getRecoveredEvents() {
+        return this.recoveredEvents;
+    }
+
+    // rotate the journal and write a snapshot now, returns when the snapshot is on disk
+    public void snapshot() throws IOException {
+        boolean interrupted = false;
+        synchronized (this.lock) {
+            while (this.snapshotRunning) interrupted |= waitForLock();
+            if (interrupted) Thread.currentThread().interrupt();
+            if (!this.running) throw new IOException("Journal is closed");
+            this.snapshotRunning = true;
+        }
+        takeSnapshot();
+    }
+
+    // stop journaling (pending records are written first), the theatre keeps working without a journal
+    @Override
+    public void close() throws IOException {
+        this.theatre.removeSeatListener(this.appender);
+        boolean interrupted = false;
+        synchronized (this.lock) {
+            // a running snapshot needs the writer for its rotation
+            while (this.snapshotRunning) interrupted |= waitForLock();
+            this.running = false;
+            this.lock.notifyAll();
+        }
+        LockSupport.unpark(this.writer);
+        // the pending records are written even if this thread is interrupted
+        while (true) {
+            try {
+                this.writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        this.snapshotExecutor.shutdown();
+        if (this.channel != null) this.channel.close();
+        if (this.writeError != null) throw new IOException("Journal write failed", this.writeError);
+    }
+
+    // ================ appending and writing ================
+    // SeatListener callback: stage the seat, the writer reads its state (reserved is not needed, see above)
+    private void append(int rowNumber, int seatNumber, boolean reserved) {
+        // the seat changed but cannot be journaled (write error or closed), fail loudly instead of losing it silently
+        if (!this.running || this.writerDone) {
+            throw new IllegalStateException("Journal is not writing", this.writeError);
+        }
+        long sequence;
+        do {
+            sequence = this.claimed.get();
+            if ((sequence & CLAIMS_CLOSED) != 0) {
+                throw new IllegalStateException("Journal is not writing", this.writeError);
+            }
+        } while (!this.claimed.compareAndSet(sequence, sequence + 1));
+
+        if (sequence - this.consumedSequence >= STAGING_SIZE) {
+            waitForRoom(sequence);
+        }
+        int slot = (int) sequence & STAGING_MASK;
+        this.stagedSeats.set(slot, (long) rowNumber << 32 | seatNumber);
+        this.stagedSequences.set(slot, sequence);
+        LockSupport.unpark(this.writer);
+        // claimed before a write error stopped the writer, this record will not be written
+        if (this.writeError != null) {
+            throw new IllegalStateException("Journal is not writing", this.writeError);
+        }
+    }
+
+    // the writer is a whole ring behind, wait until it took the seat of the slot (woken after every force)
+    private void waitForRoom(long sequence) {
+        boolean interrupted = false;
+        try {
+            synchronized (this.lock) {
+                while (sequence - this.consumedSequence >= STAGING_SIZE) {
+                    if (this.writerDone) {
+                        throw new IllegalStateException("Journal is not writing", this.writeError);
+                    }
+                    interrupted |= waitForLock();
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    // writer thread: takes the staged seats in sequence order, writes and forces them, then wakes up the waiting
+    // threads; at a rotation point it switches to the next generation, when closed it stops after the last claim
+    private void writeLoop() {
+        ByteBuffer batch = newBuffer();
+        while (true) {
+            long from = this.consumedSequence;
+            long rotateAt;
+            synchronized (this.lock) {
+                rotateAt = this.rotationSequence;
+            }
+            if (rotateAt == from) {
+                // everything before the rotation point is on disk
+                try {
+                    this.channel.close();
+                    int nextGeneration;
+                    synchronized (this.lock) {
+                        nextGeneration = this.generation + 1;
+                    }
+                    // the new journal is on disk before the snapshot thread can delete the old generations
+                    this.channel = openJournal(nextGeneration);
+                    synchronized (this.lock) {
+                        this.generation = nextGeneration;
+                        this.rotationSequence = -1;
+                        this.lock.notifyAll();
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+                continue;
+            }
+
+            // staged records in a row from the oldest on, one with fsync batching off
+            long limit = from + (this.groupCommit ? STAGING_SIZE : 1);
+            if (rotateAt > from) limit = Math.min(limit, rotateAt);
+            long to = from;
+            while (to < limit && this.stagedSequences.get((int) to & STAGING_MASK) == to) {
+                to++;
+            }
+            if (to == from) {
+                if (!this.running) {
+                    // no claims from here on, the ones made before are still written
+                    long last = this.claimed.updateAndGet(c -> c | CLAIMS_CLOSED) & ~CLAIMS_CLOSED;
+                    if (last == from) {
+                        synchronized (this.lock) {
+                            this.writerDone = true;
+                            this.lock.notifyAll();
+                        }
+                        return;
+                    }
+                    // claimed, not staged yet
+                    Thread.yield();
+                    continue;
+                }
+                LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+                continue;
+            }
+
+            batch.clear();
+            for (long sequence = from; sequence < to; sequence++) {
+                long seat = this.stagedSeats.get((int) sequence & STAGING_MASK);
+                int rowNumber = (int) (seat >>> 32);
+                int seatNumber = (int) seat;
+                int type = this.theatre.isReserved(rowNumber, seatNumber) ? 1 : 0;
+                batch.putInt(RECORD_MAGIC | type).putInt(rowNumber).putInt(seatNumber)
+                    .putInt(checksum(type, rowNumber, seatNumber));
+            }
+            // the slots can be reused, the records are in the batch
+            this.consumedSequence = to;
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    this.channel.write(batch);
+                }
+                this.channel.force(false);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+
+            synchronized (this.lock) {
+                this.durableSequence = to;
+                this.eventsSinceSnapshot += to - from;
+                if (this.eventsSinceSnapshot >= this.snapshotEveryEvents && !this.snapshotRunning && this.running) {
+                    // in another thread, the snapshot waits for this one to rotate the journal
+                    this.snapshotRunning = true;
+                    this.snapshotExecutor.execute(this::takeSnapshotQuietly);
+                }
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    // write error: nothing more is claimed or written, everybody waiting is told
+    private void fail(IOException e) {
+        this.claimed.updateAndGet(c -> c | CLAIMS_CLOSED);
+        synchronized (this.lock) {
+            this.writeError = e;
+            this.running = false;
+            this.writerDone = true;
+            this.lock.notifyAll();
+        }
+    }
+
+    // ================ snapshots ================
+    private void takeSnapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (IOException e) {
+            System.err.println("<!> Snapshot failed: " + e.getMessage());
+        }
+    }
+
+    // the end of the current journal generation is fixed first, then the seat words are copied (see above),
+    // the snapshot describes the start of the next generation
+    private void takeSnapshot() throws IOException {
+        try {
+            int snapshotGeneration;
+            synchronized (this.lock) {
+                this.rotationSequence = this.claimed.get() & ~CLAIMS_CLOSED;
+                this.eventsSinceSnapshot = 0;
+                snapshotGeneration = this.generation + 1;
+            }
+            LockSupport.unpark(this.writer);
+            long[] words = this.theatre.copyReservedWords();
+
+            // wait for the writer to finish the old generation
+            boolean interrupted = false;
+            try {
+                synchronized (this.lock) {
+                    while (this.generation < snapshotGeneration) {
+                        if (this.writeError != null) throw new IOException("Journal write failed", this.writeError);
+                        if (this.writerDone) throw new IOException("Journal is closed");
+                        interrupted |= waitForLock();
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+
+            writeSnapshot(snapshotGeneration, words);
+            deleteGenerationsBefore(snapshotGeneration);
+        } finally {
+            synchronized (this.lock) {
+                this.snapshotRunning = false;
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void writeSnapshot(int snapshotGeneration, long[] words) throws IOException {
+        Path temp = this.directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + words.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(this.theatre.getNumberOfRows()).putInt(this.theatre.getSeatsPerRow())
+                .putInt(words.length).putLong(checksum(words));
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, snapshotPath(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // the new name has to be on disk before older generations are deleted
+        forceDirectory();
+    }
+
+    // seat words of a snapshot file, null if it is missing or damaged
+    private long[] readSnapshot(int snapshotGeneration) throws IOException {
+        Path path = snapshotPath(snapshotGeneration);
+        if (!Files.exists(path)) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < SNAPSHOT_HEADER_SIZE || buffer.getInt() != SNAPSHOT_MAGIC) return null;
+        int rows = buffer.getInt();
+        int seatsPerRow = buffer.getInt();
+        int count = buffer.getInt();
+        long expected = buffer.getLong();
+        if (rows != this.theatre.getNumberOfRows() || seatsPerRow != this.theatre.getSeatsPerRow()) {
+            throw new IOException("Snapshot is for a " + rows + " x " + seatsPerRow + " theatre");
+        }
+        if (buffer.remaining() != count * Long.BYTES) return null;
+        long[] words = new long[count];
+        buffer.asLongBuffer().get(words);
+        return checksum(words) == expected ? words : null;
+    }
+
+    // ================ recovery ================
+    private void recover() throws IOException {
+        TreeSet<Integer> snapshots = new TreeSet<>();
+        TreeSet<Integer> journals = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.matches("snapshot-\\d+\\.bin")) snapshots.add(generationOf(name));
+                if (name.matches("journal-\\d+\\.log")) journals.add(generationOf(name));
+            }
+        }
+
+        // newest readable snapshot
+        int base = 0;
+        for (Integer candidate : snapshots.descendingSet()) {
+            long[] words = readSnapshot(candidate);
+            if (words != null) {
+                this.theatre.restoreReservedWords(words);
+                base = candidate;
+                break;
+            }
+        }
+
+        // replay every journal from the snapshot generation on, in order
+        int last = base;
+        for (int journalGeneration : journals.tailSet(base)) {
+            this.recoveredEvents += replay(journalPath(journalGeneration));
+            last = Math.max(last, journalGeneration);
+        }
+
+        // start clean: new generation with a snapshot of the recovered state, then drop the old files
+        this.generation = last + 1;
+        this.channel = openJournal(this.generation);
+        writeSnapshot(this.generation, this.theatre.copyReservedWords());
+        deleteGenerationsBefore(this.generation);
+    }
+
+    // apply the records of one journal file, returns the number of records applied
+    private long replay(Path path) throws IOException {
+        long applied = 0;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = newBuffer();
+            while (in.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    int header = buffer.getInt();
+                    int row = buffer.getInt();
+                    int seat = buffer.getInt();
+                    int check = buffer.getInt();
+                    int type = header & 1;
+                    if ((header & ~1) != RECORD_MAGIC || check != checksum(type, row, seat)
+                            || !this.theatre.isValidPosition(row, seat)) {
+                        // torn or damaged record, nothing after it can be trusted
+                        return applied;
+                    }
+                    if (type == 1) {
+                        this.theatre.reserveSeat(row, seat);
+                    } else {
+                        this.theatre.cancelReservation(row, seat);
+                    }
+                    applied++;
+                }
+                boolean partial = buffer.hasRemaining();
+                buffer.compact();
+                if (partial && in.position() == in.size()) {
+                    // half a record at the end of the file
+                    return applied;
+                }
+            }
+        }
+        return applied;
+    }
+
+    // ================ helpers ================
+    // creates the journal file if needed and forces the directory, so the file name survives a power loss
+    private FileChannel openJournal(int journalGeneration) throws IOException {
+        FileChannel journal = FileChannel.open(journalPath(journalGeneration), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            forceDirectory();
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    // fsync of the directory: created, renamed and deleted names reach the disk
+    // (a directory cannot be opened as a channel on every platform, e.g. Windows, there it is left to the OS)
+    private void forceDirectory() throws IOException {
+        FileChannel directoryChannel;
+        try {
+            directoryChannel = FileChannel.open(this.directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (directoryChannel) {
+            directoryChannel.force(true);
+        }
+    }
+
+    private void deleteGenerationsBefore(int keepFrom) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if ((name.matches("snapshot-\\d+\\.(bin|tmp)") || name.matches("journal-\\d+\\.log"))
+                        && generationOf(name) < keepFrom) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path journalPath(int journalGeneration) {
+        return this.directory.resolve("journal-" + journalGeneration + ".log");
+    }
+
+    private Path snapshotPath(int snapshotGeneration) {
+        return this.directory.resolve("snapshot-" + snapshotGeneration + ".bin");
+    }
+
+    private static int generationOf(String fileName) {
+        return Integer.parseInt(fileName.substring(fileName.indexOf('-') + 1, fileName.indexOf('.')));
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int checksum(int type, int row, int seat) {
+        int h = type * 0x9E3779B1 ^ row * 0x85EBCA6B ^ Integer.rotateLeft(seat * 0xC2B2AE35, 16);
+        return h ^ (h >>> 15);
+    }
+
+    private static long checksum(long[] words) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (long word : words) {
+            h = (h ^ word) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    // wait on the lock monitor (caller holds it), an interrupt does not end the wait: a started change has to
+    // reach the disk, so it returns true instead and the caller sets the interrupt flag again when it is done
+    private boolean waitForLock() {
+        try {
+            this.lock.wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// sustained durable bookings per second through ReservationJournal, with fsync batching (group commit) on and off
+// every thread reserves random seats and cancels random seats, each successful change waits for its fsync
+// after every run the journal is reopened into a new theatre, which must come back with exactly the same seats
+// then a crash is faked (the last record cut in half, a snapshot left behind as .tmp) and recovered from
+// last the cost of the journal on the booking path itself: bookings made on the theatre directly (nobody waits
+// for the fsync) without a journal and with one attached, the journal only stages the seats there
+// usage: java ReservationJournalBenchmark [threads] [seconds] [directory]
+public class ReservationJournalBenchmark {
+
+    private static final int ROWS = 100;
+    private static final int SEATS_PER_ROW = 200;
+    // small enough that a run rotates the journal and writes snapshots a few times
+    private static final int SNAPSHOT_EVERY_EVENTS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path base = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("journal-benchmark");
+
+        System.out.println("==> " + threadCount + " threads, " + seconds + " s per run, journal in " + base);
+        System.out.printf("%-22s %14s %14s %14s%n", "fsync batching", "bookings/s", "recovery ms", "recovered");
+        boolean ok = run(base.resolve("batched"), true, threadCount, seconds)
+            & run(base.resolve("unbatched"), false, threadCount, seconds)
+            & crashRecovery(base.resolve("crash"));
+        double without = bookingPath(null, threadCount, seconds);
+        double with = bookingPath(base.resolve("attached"), threadCount, seconds);
+        System.out.printf("==> journal on the booking path: %.0f%% of the bookings/s without one%n", 100 * with / without);
+        if (args.length <= 2) {
+            deleteRecursively(base);
+        }
+        if (!ok) {
+            System.out.println("<!> FAILED, recovered theatre differs");
+            System.exit(1);
+        }
+        System.out.println("==> OK, recovered theatres match");
+    }
+
+    private static boolean run(Path directory, boolean groupCommit, int threadCount, int seconds) throws Exception {
+        Theatre theatre = new Theatre(ROWS, SEATS_PER_ROW);
+        ReservationJournal journal = ReservationJournal.open(directory, theatre, groupCommit, SNAPSHOT_EVERY_EVENTS);
+
+        AtomicLong bookings = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                try {
+                    while (running.get()) {
+                        if (journal.reserveSeat(random.nextInt(ROWS) + 1, random.nextInt(SEATS_PER_ROW) + 1)) {
+                            local++;
+                        }
+                        journal.cancelReservation(random.nextInt(ROWS) + 1, random.nextInt(SEATS_PER_ROW) + 1);
+                    }
+                } catch (IOException e) {
+                    System.err.println("<!> Journal error: " + e.getMessage());
+                }
+                bookings.addAndGet(local);
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        journal.close();
+
+        // recover into a new theatre and compare every seat
+        Theatre recovered = new Theatre(ROWS, SEATS_PER_ROW);
+        long recoveryStart = System.nanoTime();
+        ReservationJournal reopened = ReservationJournal.open(directory, recovered, groupCommit, SNAPSHOT_EVERY_EVENTS);
+        double recoveryMillis = (System.nanoTime() - recoveryStart) / 1e6;
+        reopened.close();
+
+        boolean same = true;
+        for (int row = 1; row <= ROWS; row++) {
+            for (int seat = 1; seat <= SEATS_PER_ROW; seat++) {
+                same &= theatre.isReserved(row, seat) == recovered.isReserved(row, seat);
+            }
+        }
+        System.out.printf("%-22s %,14.0f %,14.1f %,14d%n", groupCommit ? "on (group commit)" : "off (fsync per change)",
+            bookings.get() / elapsed, recoveryMillis, reopened.getRecoveredEvents());
+        return same;
+    }
+
+    // bookings per second on the theatre directly, with a journal in directory attached (null = none)
+    private static double bookingPath(Path directory, int threadCount, int seconds) throws Exception {
+        Theatre theatre = new Theatre(ROWS, SEATS_PER_ROW);
+        ReservationJournal journal = directory == null ? null
+            : ReservationJournal.open(directory, theatre, true, SNAPSHOT_EVERY_EVENTS);
+
+        AtomicLong bookings = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while (running.get()) {
+                    if (theatre.reserveSeat(random.nextInt(ROWS) + 1, random.nextInt(SEATS_PER_ROW) + 1)) {
+                        local++;
+                    }
+                    theatre.cancelReservation(random.nextInt(ROWS) + 1, random.nextInt(SEATS_PER_ROW) + 1);
+                }
+                bookings.addAndGet(local);
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double perSecond = bookings.get() / ((System.nanoTime() - start) / 1e9);
+        if (journal != null) {
+            journal.close();
+        }
+        System.out.printf("%-22s %,14.0f %14s %14s%n", journal == null ? "no journal (direct)" : "attached (direct)",
+            perSecond, "-", "-");
+        return perSecond;
+    }
+
+    // journal that ends in half a record (crash during a write) and a snapshot that was still .tmp (crash before
+    // the rename): recovery must drop the torn record, ignore the .tmp and clean it up
+    private static boolean crashRecovery(Path directory) throws IOException {
+        Theatre theatre = new Theatre(ROWS, SEATS_PER_ROW);
+        ReservationJournal journal = ReservationJournal.open(directory, theatre, true, SNAPSHOT_EVERY_EVENTS);
+        for (int seat = 1; seat <= SEATS_PER_ROW; seat += 2) {
+            journal.reserveSeat(1, seat);
+        }
+        journal.cancelReservation(1, 1);
+        // last record, torn below
+        journal.reserveSeat(2, 1);
+        journal.close();
+        long expectedEvents = SEATS_PER_ROW / 2 + 1;
+
+        int generation = -1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.matches("journal-\\d+\\.log")) {
+                    generation = Math.max(generation, Integer.parseInt(name.replaceAll("\\D", "")));
+                }
+            }
+        }
+        Path log = directory.resolve("journal-" + generation + ".log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        // half written snapshot of the same generation, all seats taken if it were read
+        Path temp = directory.resolve("snapshot-" + generation + ".tmp");
+        byte[] partial = new byte[1000];
+        Arrays.fill(partial, (byte) -1);
+        Files.write(temp, partial);
+
+        Theatre recovered = new Theatre(ROWS, SEATS_PER_ROW);
+        ReservationJournal reopened = ReservationJournal.open(directory, recovered, true, SNAPSHOT_EVERY_EVENTS);
+        reopened.close();
+
+        boolean same = !recovered.isReserved(2, 1) && reopened.getRecoveredEvents() == expectedEvents
+            && !Files.exists(temp);
+        for (int row = 1; row <= ROWS; row++) {
+            for (int seat = 1; seat <= SEATS_PER_ROW; seat++) {
+                if (row != 2 || seat != 1) {
+                    same &= theatre.isReserved(row, seat) == recovered.isReserved(row, seat);
+                }
+            }
+        }
+        System.out.printf("%-22s %14s %14s %,14d%n", "crash (torn, .tmp)", "-", "-", reopened.getRecoveredEvents());
+        return same;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// localhost line protocol front end for the reservation engine, one request line -> one response line
+//
+//   RESERVE <show> <row> <seat>   -> OK | TAKEN
+//   CANCEL <show> <row> <seat>    -> OK | NOT_RESERVED
+//   GROUP <show> <count>          -> OK R1-S2,R1-S3,... | FULL
+//   QUIT                          -> BYE (server closes the connection)
+//   anything invalid              -> ERR <message>
+//
+// every connection is served by its own thread, a virtual thread when the JVM has them (Java 21+, looked up
+// by reflection so this still compiles and runs on older JDKs) or a thread of a fixed platform thread pool
+// backpressure:
+//  - at most maxConnections open connections, further clients get BUSY and are closed right away
+//  - at most maxInFlight requests are executed at the same time, the others wait for a permit
+//  - idle connections are closed after IDLE_TIMEOUT_MILLIS
+public class ReservationServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7070;
+    public static final int DEFAULT_MAX_CONNECTIONS = 20_000;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int DEFAULT_PLATFORM_THREADS = 200;
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final ShowRegistry registry;
+    private final int port;
+    private final boolean virtualThreads;
+    private final int platformThreads;
+    private final Semaphore connections;
+    private final Semaphore inFlight;
+    // open client sockets, closed on shutdown (a blocked read does not react to interrupts)
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    // constructor with the default limits
+    public ReservationServer(ShowRegistry registry, int port, boolean virtualThreads) {
+        this(registry, port, virtualThreads, DEFAULT_PLATFORM_THREADS, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    // constructor, port 0 = any free port, platformThreads is only used without virtual threads
+    public ReservationServer(ShowRegistry registry, int port, boolean virtualThreads, int platformThreads,
+                             int maxConnections, int maxInFlight) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        if (platformThreads < 1 || maxConnections < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Invalid limits: " + platformThreads + " threads, "
+                + maxConnections + " connections, " + maxInFlight + " in flight");
+        }
+        this.registry = registry;
+        this.port = port;
+        this.virtualThreads = virtualThreads;
+        this.platformThreads = platformThreads;
+        this.connections = new Semaphore(maxConnections);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    // true if this JVM can create virtual threads
+    public static boolean isVirtualThreadsAvailable() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) return false;
+        executor.shutdown();
+        return true;
+    }
+
+    // executor with one new virtual thread per task, null if the JVM has no virtual threads
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    // executor for the given thread model, virtual falls back to platform threads if not available
+    static ExecutorService newExecutor(boolean virtualThreads, int platformThreads) {
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        return executor != null ? executor : Executors.newFixedThreadPool(platformThreads);
+    }
+
+    // bind and start accepting, returns the port (useful with port 0)
+    public int start() throws IOException {
+        this.serverSocket = new ServerSocket(this.port, 1024, InetAddress.getLoopbackAddress());
+        this.executor = newExecutor(this.virtualThreads, this.platformThreads);
+        this.running = true;
+        this.acceptThread = new Thread(this::acceptLoop, "reservation-server-accept");
+        this.acceptThread.start();
+        return this.serverSocket.getLocalPort();
+    }
+
+    // stop accepting, close the server socket and wait a little for the open connections
+    @Override
+    public void close() {
+        this.running = false;
+        try {
+            if (this.serverSocket != null) this.serverSocket.close();
+            if (this.acceptThread != null) this.acceptThread.join();
+        } catch (IOException | InterruptedException e) {
+            // closing anyway
+        }
+        for (Socket socket : this.openSockets) {
+            closeQuietly(socket);
+        }
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            try {
+                this.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (this.running) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                // server socket closed
+                break;
+            }
+
+            if (!this.connections.tryAcquire()) {
+                reject(socket);
+                continue;
+            }
+            this.openSockets.add(socket);
+            try {
+                this.executor.execute(() -> serve(socket));
+            } catch (RuntimeException e) {
+                // executor shut down while accepting
+                this.openSockets.remove(socket);
+                this.connections.release();
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // too many connections, tell the client and close
+    private static void reject(Socket socket) {
+        try (Socket closing = socket) {
+            closing.getOutputStream().write("BUSY\n".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // client is gone already
+        }
+    }
+
+    // one connection, until QUIT, end of input, idle timeout or server shutdown
+    private void serve(Socket socket) {
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            client.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            client.setTcpNoDelay(true);
+
+            String line;
+            while (this.running && (line = in.readLine()) != null) {
+                String response;
+                this.inFlight.acquire();
+                try {
+                    response = handle(line.trim());
+                } finally {
+                    this.inFlight.release();
+                }
+                out.write(response);
+                out.write('\n');
+                out.flush();
+                if (response.equals("BYE")) break;
+            }
+        } catch (SocketTimeoutException | SocketException e) {
+            // idle or reset connection
+        } catch (IOException e) {
+            System.err.println("<!> Connection error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // server shutdown
+        } finally {
+            this.openSockets.remove(socket);
+            this.connections.release();
+        }
+    }
+
+    // one request line -> response line
+    String handle(String line) {
+        String[] parts = line.split("\\s+");
+        try {
+            switch (parts[0].toUpperCase()) {
+                case "RESERVE":
+                    requireArguments(parts, 4);
+                    return this.registry.reserveSeat(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]))
+                        ? "OK" : "TAKEN";
+                case "CANCEL":
+                    requireArguments(parts, 4);
+                    return this.registry.cancelReservation(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]))
+                        ? "OK" : "NOT_RESERVED";
+                case "GROUP":
+                    requireArguments(parts, 3);
+                    List<Seat> seats = this.registry.reserveGroup(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                    if (seats.isEmpty()) return "FULL";
+                    StringBuilder response = new StringBuilder("OK ");
+                    for (int i = 0; i < seats.size(); i++) {
+                        if (i > 0) response.append(',');
+                        response.append(seats.get(i).toString(false));
+                    }
+                    return response.toString();
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERR Unknown command: " + parts[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR Invalid number: " + e.getMessage();
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private static void requireArguments(String[] parts, int count) {
+        if (parts.length != count) {
+            throw new IllegalArgumentException(parts[0].toUpperCase() + " needs " + (count - 1) + " arguments");
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    // java ReservationServer [port] [virtual|platform] [shows]
+    // shows get ids 1..shows, 10 rows x 20 seats each
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        boolean virtual = args.length <= 1 || args[1].equalsIgnoreCase("virtual");
+        int shows = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        ShowRegistry registry = new ShowRegistry();
+        for (int id = 1; id <= shows; id++) {
+            registry.addShow(id, "Auditorium " + id, 10, 20);
+        }
+
+        ReservationServer server = new ReservationServer(registry, port, virtual);
+        int boundPort = server.start();
+        boolean usingVirtual = virtual && isVirtualThreadsAvailable();
+        System.out.println("==> Serving " + shows + " shows on localhost:" + boundPort + " with "
+            + (usingVirtual ? "virtual threads" : "platform threads") + (virtual && !usingVirtual ? " (no virtual threads in this JVM)" : ""));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.List;
+
+// text front end of a theatre used by the menu and the server: every operation gives back the message to show
+public class ReservationService {
+    // number of seats suggested when there is nothing free around the requested seat
+    private static final int NEAREST_SUGGESTIONS = 3;
+
+    private Theatre theatre;
+
+    public ReservationService(Theatre theatre) {
+        this.theatre = theatre;
+    }
+
+    // overload reserve seats method without distance
+    public String reserveSeat(int rowNumber, int seatNumber) {
+        return reserveSeat(rowNumber, seatNumber, 1);
+    }
+
+    // reserve seats method with distance
+    public String reserveSeat(int rowNumber, int seatNumber, int distance) {
+
+        final String SEAT_POSITION_FORMAT = "Seat %d in row %d";
+        final String MESSAGE_PREFIX = "\n--> ";
+
+        if (!theatre.isValidPosition(rowNumber, seatNumber)) {
+            return "Invalid seat position.";
+        }
+
+        if (theatre.reserveSeat(rowNumber, seatNumber)) {
+            return String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " has been successfully reserved!", seatNumber, rowNumber);
+        } else {
+            List<Seat> availableSeats = theatre.findNearbyAvailableSeats(rowNumber, seatNumber, distance);
+            
+            if (availableSeats.isEmpty()) {
+                String result = String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " is taken, and no available seats nearby.", seatNumber, rowNumber);
+
+                // point to the nearest free seats further away, if there are any left
+                List<Seat> nearestSeats = theatre.findNearestAvailableSeats(rowNumber, seatNumber, NEAREST_SUGGESTIONS);
+                if (!nearestSeats.isEmpty()) {
+                    result += "\n\nNearest available seats: " + seatList(nearestSeats);
+                }
+                return result;
+            } else {
+
+                String result = String.format(MESSAGE_PREFIX + SEAT_POSITION_FORMAT + " is taken.\n\nAvailable nearby seats: ", seatNumber, rowNumber);
+
+                int i = 0;
+                for (Seat seat : availableSeats) {
+                    result += seat.toString(false);
+                    if (i < availableSeats.size() - 1) {
+                        result += ", ";
+                    }
+                    i++;
+                }
+
+                result += "\n\n" 
+                    + theatre.getSeatingChart(rowNumber - distance, rowNumber + distance, seatNumber - distance, seatNumber + distance) 
+                    + "\n";
+
+                return result;
+            }
+        }
+    }
+
+    // cancel reservation method
+    public String cancelReservation(int rowNumber, int seatNumber) {
+
+        if (!theatre.isValidPosition(rowNumber, seatNumber)) {
+            return "<!> Invalid seat position.";
+        }
+
+        if (theatre.cancelReservation(rowNumber, seatNumber)) {
+            return "--> Reservation cancelled successfully!";
+        } else {
+            return "<!> No reservation found at this seat.";
+        }
+    }
+
+    // reserve a group of seats next to each other in one row (first row with room), all or nothing
+    public String reserveGroup(int groupSize) {
+        return reserveGroup(groupSize, 1, theatre.getNumberOfRows());
+    }
+
+    // reserve a group of seats next to each other in one row between beginRow and endRow, all or nothing
+    public String reserveGroup(int groupSize, int beginRow, int endRow) {
+        if (groupSize < 1 || groupSize > theatre.getSeatsPerRow()) {
+            return "<!> Invalid group size.";
+        }
+        List<Seat> seats = theatre.reserveGroup(groupSize, beginRow, endRow);
+        if (seats.isEmpty()) {
+            return "<!> No row has " + groupSize + " free seats next to each other.";
+        }
+        return "--> Group of " + groupSize + " reserved: " + seatList(seats);
+    }
+
+    // reserve any groupSize free seats inside a region of the theatre, all or nothing
+    public String reserveGroupInRegion(int groupSize, int beginRow, int endRow, int beginSeat, int endSeat) {
+        if (groupSize < 1) {
+            return "<!> Invalid group size.";
+        }
+        List<Seat> seats = theatre.reserveAnyInRegion(groupSize, beginRow, endRow, beginSeat, endSeat);
+        if (seats.isEmpty()) {
+            return "<!> Not enough free seats in the selected area for a group of " + groupSize + ".";
+        }
+        return "--> Group of " + groupSize + " reserved: " + seatList(seats);
+    }
+
+    // seats as R1-S2, R1-S3, ...
+    private String seatList(List<Seat> seats) {
+        StringBuilder result = new StringBuilder();
+        for (Seat seat : seats) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(seat.toString(false));
+        }
+        return result.toString();
+    }
+
+    // view seating chart method
+    // chart of the current snapshot, drawn once per snapshot version
+    public String viewSeatingChart() {
+        return theatre.getAvailabilitySnapshot().getSeatingChart();
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// stress test for the concurrent Theatre: many threads reserve, cancel and group-reserve random seats
+// (fixed position groups, first free run in a row, any seats in a small region and all-or-nothing seat sets)
+// every successful reservation must also win the seat in a separate owner table, if two threads ever
+// both get the same seat the owner table catches it (double booking) and the test fails
+// usage: java ReservationStressTest [threads] [seconds] [rows] [seats per row]
+public class ReservationStressTest {
+
+    private static final int GROUP_SIZE = 4;
+
+    private static Theatre theatre;
+    // owner thread (1-based) of every seat, 0 = free
+    private static AtomicIntegerArray owners;
+    private static final AtomicLong attempts = new AtomicLong();
+    private static final AtomicLong reserved = new AtomicLong();
+    private static final AtomicLong cancelled = new AtomicLong();
+    private static final AtomicLong errors = new AtomicLong();
+    private static volatile boolean running = true;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int seatsPerRow = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        theatre = new Theatre(rows, seatsPerRow);
+        owners = new AtomicIntegerArray(rows * seatsPerRow);
+
+        System.out.println("==> " + threadCount + " threads, " + seconds + " s, theatre " + rows + " x " + seatsPerRow);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int id = i + 1;
+            threads[i] = new Thread(() -> worker(id));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // final check, the theatre and the owner table must agree on every seat
+        int occupied = 0;
+        for (int row = 1; row <= rows; row++) {
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                boolean owned = owners.get(index(row, seat)) != 0;
+                if (owned != theatre.isReserved(row, seat)) {
+                    errors.incrementAndGet();
+                }
+                if (owned) occupied++;
+            }
+        }
+
+        System.out.printf("==> %,d attempts in %.1f s (%,.0f attempts/s)%n", attempts.get(), elapsed, attempts.get() / elapsed);
+        System.out.printf("==> %,d seats reserved, %,d cancelled, %,d occupied at the end%n", reserved.get(), cancelled.get(), occupied);
+        if (errors.get() == 0) {
+            System.out.println("==> OK, no double booking");
+        } else {
+            System.out.println("<!> FAILED, " + errors.get() + " double bookings or lost seats");
+            System.exit(1);
+        }
+    }
+
+    // random mix: single reservations, group reservations and cancelling own seats
+    private static void worker(int id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int rows = theatre.getNumberOfRows();
+        int seatsPerRow = theatre.getSeatsPerRow();
+        // seats this thread holds, so it only cancels its own reservations
+        int[] mine = new int[64];
+        int mineCount = 0;
+        // counted locally, shared counters would turn into the bottleneck
+        long localAttempts = 0;
+        long localReserved = 0;
+        long localCancelled = 0;
+
+        while (running) {
+            for (int batch = 0; batch < 1024; batch++) {
+                localAttempts++;
+                int operation = random.nextInt(10);
+                int row = random.nextInt(rows) + 1;
+
+                if (operation < 3 && mineCount > 0) {
+                    // cancel one of our seats, release the owner entry first so the seat is never owned twice
+                    int pick = random.nextInt(mineCount);
+                    int seatIndex = mine[pick];
+                    mine[pick] = mine[--mineCount];
+                    owners.set(seatIndex, 0);
+                    if (!theatre.cancelReservation(seatIndex / seatsPerRow + 1, seatIndex % seatsPerRow + 1)) {
+                        errors.incrementAndGet();
+                    }
+                    localCancelled++;
+                } else if (operation == 9 && seatsPerRow >= GROUP_SIZE) {
+                    // fixed position group or the first free run in the row
+                    int first = random.nextInt(seatsPerRow - GROUP_SIZE + 1) + 1;
+                    if (random.nextBoolean() ? theatre.reserveSeats(row, first, GROUP_SIZE)
+                            : (first = theatre.reserveFreeRun(row, GROUP_SIZE)) > 0) {
+                        for (int seat = first; seat < first + GROUP_SIZE; seat++) {
+                            mine = claim(id, index(row, seat), mine, mineCount++);
+                        }
+                        localReserved += GROUP_SIZE;
+                    }
+                } else if (operation == 8) {
+                    // any GROUP_SIZE seats in a 3 x 3 region
+                    int seat = random.nextInt(seatsPerRow) + 1;
+                    List<Seat> seats = theatre.reserveAnyInRegion(GROUP_SIZE, row, row + 2, seat, seat + 2);
+                    for (Seat won : seats) {
+                        mine = claim(id, index(won.getRowNumber(), won.getSeatNumber()), mine, mineCount++);
+                    }
+                    localReserved += seats.size();
+                } else if (operation == 7) {
+                    // three random seats anywhere, all or nothing
+                    List<Seat> seats = new ArrayList<>();
+                    for (int i = 0; i < 3; i++) {
+                        seats.add(new Seat(random.nextInt(rows) + 1, random.nextInt(seatsPerRow) + 1));
+                    }
+                    if (theatre.reserveAll(seats)) {
+                        for (Seat won : seats) {
+                            mine = claim(id, index(won.getRowNumber(), won.getSeatNumber()), mine, mineCount++);
+                        }
+                        localReserved += seats.size();
+                    }
+                } else {
+                    int seat = random.nextInt(seatsPerRow) + 1;
+                    if (theatre.reserveSeat(row, seat)) {
+                        mine = claim(id, index(row, seat), mine, mineCount++);
+                        localReserved++;
+                    }
+                }
+            }
+        }
+        attempts.addAndGet(localAttempts);
+        reserved.addAndGet(localReserved);
+        cancelled.addAndGet(localCancelled);
+    }
+
+    // record a won seat, the owner entry must be free or another thread got the same seat
+    private static int[] claim(int id, int seatIndex, int[] mine, int mineCount) {
+        if (!owners.compareAndSet(seatIndex, 0, id)) {
+            errors.incrementAndGet();
+        }
+        if (mineCount == mine.length) {
+            mine = Arrays.copyOf(mine, mine.length * 2);
+        }
+        mine[mineCount] = seatIndex;
+        return mine;
+    }
+
+    private static int index(int row, int seat) {
+        return (row - 1) * theatre.getSeatsPerRow() + (seat - 1);
+    }
+}
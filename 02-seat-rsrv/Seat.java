@@ -0,0 +1,71 @@
+// single seat of a theatre (row and seat number from 1), a plain value for display and seat lists,
+// the theatre itself keeps the seat states in its bitset
+public class Seat {
+    private int rowNumber;
+    private int seatNumber;
+    private boolean isReserved;
+    private boolean isHeld;
+
+    // constructor
+    public Seat(int rowNumber, int seatNumber) {
+        this(rowNumber, seatNumber, false);
+    }
+
+    // constructor with reservation state (seats are created on demand from the theatre seat map)
+    public Seat(int rowNumber, int seatNumber, boolean isReserved) {
+        this(rowNumber, seatNumber, isReserved, false);
+    }
+
+    // constructor with reservation and hold state
+    public Seat(int rowNumber, int seatNumber, boolean isReserved, boolean isHeld) {
+        this.rowNumber = rowNumber;
+        this.seatNumber = seatNumber;
+        this.isReserved = isReserved;
+        this.isHeld = isHeld;
+    }
+
+    // row number getter
+    public int getRowNumber() {
+        return this.rowNumber;
+    }
+
+    // seat number getter
+    public int getSeatNumber() {
+        return this.seatNumber;
+    }
+
+    // is seat reserved getter
+    public boolean isReserved() {
+        return this.isReserved;
+    }
+
+    // is seat held getter (checkout in progress, not reserved yet)
+    public boolean isHeld() {
+        return this.isHeld;
+    }
+
+    // reserve setter
+    public void reserve() {
+        this.isReserved = true;
+    }
+
+    // cancel reserve setter
+    public void cancel() {
+        this.isReserved = false;
+    }
+
+    // overloaded toString method
+    public String toString(boolean verbose) {
+        return verbose 
+            ? "Row: " + this.rowNumber + ", Seat: " + this.seatNumber + ", Reserved: " + (isHeld ? "Held" : isReserved ? "Yes" : "No")
+            : "R" + this.rowNumber + "-S" + this.seatNumber;
+    }
+
+    // toString method for seat
+    @Override
+    public String toString() {
+        // default to verbose details
+        return toString(true);
+    }
+
+}
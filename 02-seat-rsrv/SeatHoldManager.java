@@ -0,0 +1,280 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// time limited seat holds (e.g. 10 minutes while the customer is in the checkout), released automatically
+//
+// the expiry times sit in a hierarchical timing wheel with two levels of WHEEL_SIZE buckets:
+//  - inner wheel: one bucket per tick, for holds due within WHEEL_SIZE ticks
+//  - outer wheel: one bucket per WHEEL_SIZE ticks, moved down into the inner wheel when its turn comes
+//    (holds further away than the outer wheel just go round again)
+// scheduling a hold is O(1) (append to a bucket), every tick only looks at its own bucket, there is no thread
+// per hold and no scan of the seat grid
+// confirming or releasing a hold does not touch the wheel, the timer entry stays and does nothing when it
+// fires: every hold of a seat has its own generation and the theatre only expires the generation it was given
+//
+// time moves in ticks of tickMillis, either by the timer thread (start) or by calling advanceTo (tests, demo)
+// an expired seat is free in the theatre right away, so availability queries and the chart see it at once
+public class SeatHoldManager implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final long DEFAULT_HOLD_MILLIS = 10 * 60_000;
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final Theatre theatre;
+    private final long tickMillis;
+    private final long startMillis;
+
+    // wheels and currentTick are guarded by wheelLock, the buckets are only swapped under it
+    private final Object wheelLock = new Object();
+    private final Bucket[] innerWheel = newWheel();
+    private final Bucket[] outerWheel = newWheel();
+    // last processed tick
+    private long currentTick;
+    // empty bucket swapped in for the one being expired (timer side only)
+    private Bucket drained = new Bucket();
+
+    private Thread timer;
+    private volatile boolean running;
+
+    // constructor with the default tick, ticks count from now
+    public SeatHoldManager(Theatre theatre) {
+        this(theatre, DEFAULT_TICK_MILLIS, System.currentTimeMillis());
+    }
+
+    // constructor, tick 0 is at startMillis
+    public SeatHoldManager(Theatre theatre, long tickMillis, long startMillis) {
+        if (theatre == null) {
+            throw new IllegalArgumentException("Theatre cannot be null");
+        }
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Invalid tick: " + tickMillis + " ms");
+        }
+        this.theatre = theatre;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+    }
+
+    // ================ holds ================
+    // hold a free seat for the default time, false if it is not free
+    public boolean hold(int rowNumber, int seatNumber) {
+        return hold(rowNumber, seatNumber, DEFAULT_HOLD_MILLIS);
+    }
+
+    // hold a free seat for durationMillis (rounded up to whole ticks), false if it is not free
+    public boolean hold(int rowNumber, int seatNumber, long durationMillis) {
+        if (durationMillis < 1) {
+            throw new IllegalArgumentException("Invalid hold time: " + durationMillis + " ms");
+        }
+        int generation = this.theatre.holdSeat(rowNumber, seatNumber);
+        if (generation == 0) {
+            return false;
+        }
+        long ticks = (durationMillis + this.tickMillis - 1) / this.tickMillis;
+        long entry = (long) this.theatre.seatIndex(rowNumber, seatNumber) << 32 | (generation & 0xFFFFFFFFL);
+        synchronized (this.wheelLock) {
+            schedule(entry, this.currentTick + ticks);
+        }
+        return true;
+    }
+
+    // the customer paid, the held seat becomes reserved
+    public boolean confirm(int rowNumber, int seatNumber) {
+        return this.theatre.confirmHold(rowNumber, seatNumber);
+    }
+
+    // the customer gave up, the held seat is free again
+    public boolean release(int rowNumber, int seatNumber) {
+        return this.theatre.releaseHold(rowNumber, seatNumber);
+    }
+
+    // ================ time ================
+    // start the timer thread (wall clock), one tick every tickMillis
+    public synchronized void start() {
+        if (this.timer != null) {
+            throw new IllegalStateException("Already started");
+        }
+        this.running = true;
+        this.timer = new Thread(() -> {
+            while (this.running) {
+                advanceTo(System.currentTimeMillis());
+                try {
+                    Thread.sleep(this.tickMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }, "seat-hold-timer");
+        this.timer.setDaemon(true);
+        this.timer.start();
+    }
+
+    // stop the timer thread, holds that are still open stay held
+    // joins outside the lock, the timer thread may be waiting for it in advanceTo
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            this.running = false;
+            running = this.timer;
+            this.timer = null;
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // process all ticks up to nowMillis, returns the number of holds that expired
+    public synchronized int advanceTo(long nowMillis) {
+        long targetTick = (nowMillis - this.startMillis) / this.tickMillis;
+        int expired = 0;
+        while (true) {
+            Bucket due;
+            synchronized (this.wheelLock) {
+                if (this.currentTick >= targetTick) break;
+                long tick = ++this.currentTick;
+                if ((tick & WHEEL_MASK) == 0) {
+                    cascade(tick);
+                }
+                int slot = (int) (tick & WHEEL_MASK);
+                due = this.innerWheel[slot];
+                this.innerWheel[slot] = this.drained;
+            }
+
+            // expire outside the wheel lock, holds can go on meanwhile
+            for (int i = 0; i < due.size; i++) {
+                long entry = due.entries[i];
+                int seatIndex = (int) (entry >>> 32);
+                int row = seatIndex / this.theatre.getSeatsPerRow() + 1;
+                int seat = seatIndex % this.theatre.getSeatsPerRow() + 1;
+                if (this.theatre.expireHold(row, seat, (int) entry)) {
+                    expired++;
+                }
+            }
+            due.clear();
+            this.drained = due;
+        }
+        return expired;
+    }
+
+    // last processed tick
+    public long getCurrentTick() {
+        synchronized (this.wheelLock) {
+            return this.currentTick;
+        }
+    }
+
+    public long getTickMillis() {
+        return this.tickMillis;
+    }
+
+    // ================ wheel ================
+    // put an entry into the bucket for deadlineTick, under wheelLock
+    private void schedule(long entry, long deadlineTick) {
+        long deadline = Math.max(deadlineTick, this.currentTick + 1);
+        if (deadline - this.currentTick < WHEEL_SIZE) {
+            this.innerWheel[(int) (deadline & WHEEL_MASK)].add(entry, deadline);
+        } else {
+            this.outerWheel[(int) ((deadline >>> WHEEL_BITS) & WHEEL_MASK)].add(entry, deadline);
+        }
+    }
+
+    // move the outer bucket that starts at tick into the inner wheel (or around again), under wheelLock
+    private void cascade(long tick) {
+        int slot = (int) ((tick >>> WHEEL_BITS) & WHEEL_MASK);
+        Bucket moving = this.outerWheel[slot];
+        this.outerWheel[slot] = new Bucket();
+        for (int i = 0; i < moving.size; i++) {
+            schedule(moving.entries[i], moving.deadlines[i]);
+        }
+    }
+
+    private static Bucket[] newWheel() {
+        Bucket[] wheel = new Bucket[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+        return wheel;
+    }
+
+    // growable list of timer entries (seat index << 32 | hold generation) and their deadline ticks
+    private static class Bucket {
+        private long[] entries = new long[4];
+        private long[] deadlines = new long[4];
+        private int size;
+
+        void add(long entry, long deadline) {
+            if (this.size == this.entries.length) {
+                this.entries = Arrays.copyOf(this.entries, this.size * 2);
+                this.deadlines = Arrays.copyOf(this.deadlines, this.size * 2);
+            }
+            this.entries[this.size] = entry;
+            this.deadlines[this.size] = deadline;
+            this.size++;
+        }
+
+        // keep the arrays, a busy bucket will be busy again
+        void clear() {
+            this.size = 0;
+        }
+    }
+
+    // demo: hold every seat of a big theatre for up to 10 minutes of simulated time, confirm some, let the rest expire
+    // usage: java SeatHoldManager [rows] [seats per row]
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seatsPerRow = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Theatre theatre = new Theatre(rows, seatsPerRow);
+        SeatHoldManager holds = new SeatHoldManager(theatre, DEFAULT_TICK_MILLIS, 0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        for (int row = 1; row <= rows; row++) {
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                holds.hold(row, seat, 1 + random.nextLong(DEFAULT_HOLD_MILLIS));
+            }
+        }
+        long holdNanos = System.nanoTime() - start;
+        int seats = rows * seatsPerRow;
+        System.out.printf("==> %,d holds in %.0f ms (%.0f ns per hold)%n", seats, holdNanos / 1e6, (double) holdNanos / seats);
+
+        // every 10th seat is paid for
+        int confirmed = 0;
+        for (int row = 1; row <= rows; row++) {
+            for (int seat = 1; seat <= seatsPerRow; seat += 10) {
+                if (holds.confirm(row, seat)) confirmed++;
+            }
+        }
+
+        // half time: about half of the open holds are gone
+        int expired = holds.advanceTo(DEFAULT_HOLD_MILLIS / 2);
+        System.out.printf("==> after %d s: %,d holds expired%n", DEFAULT_HOLD_MILLIS / 2000, expired);
+
+        start = System.nanoTime();
+        expired += holds.advanceTo(DEFAULT_HOLD_MILLIS + DEFAULT_TICK_MILLIS);
+        long expireNanos = System.nanoTime() - start;
+        System.out.printf("==> after %d s: %,d holds expired in total, %,d confirmed (second half took %.0f ms)%n",
+            DEFAULT_HOLD_MILLIS / 1000, expired, confirmed, expireNanos / 1e6);
+
+        int held = 0;
+        int reserved = 0;
+        for (int row = 1; row <= rows; row++) {
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                if (theatre.isHeld(row, seat)) held++;
+                if (theatre.isReserved(row, seat)) reserved++;
+            }
+        }
+        if (held == 0 && reserved == confirmed && expired + confirmed == seats) {
+            System.out.println("==> OK, no seat is held any more, only the confirmed seats are reserved");
+        } else {
+            System.out.println("<!> FAILED, " + held + " seats still held, " + reserved + " reserved");
+            System.exit(1);
+        }
+    }
+}
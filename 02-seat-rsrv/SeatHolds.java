@@ -0,0 +1,145 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// holds (checkout in progress) of one theatre, Theatre.holdSeat / confirmHold / releaseHold hand over to it
+// a held seat has its bit set in the theatre bitset like a reserved one, so every availability query treats it
+// as taken, and the bits here mark which taken seats are only held; holds, their confirmation and release,
+// and cancellations run under the row lock, so a cancel never frees a seat that is half way into a hold
+// every hold of a seat gets a new generation, so a late expiry timer cannot release a newer hold
+class SeatHolds {
+    private Theatre theatre;
+    // held seats (a subset of the taken ones), same word layout as the theatre bitset, only changed under the row lock
+    private AtomicLongArray heldBits;
+    // hold generation per seat, only used under the row lock, created with the first hold
+    private int[] generations;
+    private AtomicIntegerArray rowHeld;
+    private LongAdder totalHeld = new LongAdder();
+
+    SeatHolds(Theatre theatre, int words) {
+        this.theatre = theatre;
+        this.heldBits = new AtomicLongArray(words);
+        this.rowHeld = new AtomicIntegerArray(theatre.getNumberOfRows());
+    }
+
+    // hold a free seat (valid position), returns the generation of this hold (never 0), 0 if the seat is not free
+    int hold(int rowNumber, int seatNumber) {
+        int word = this.theatre.wordIndex(rowNumber, seatNumber);
+        long mask = Theatre.bitMask(seatNumber);
+
+        int generation;
+        ReentrantLock lock = this.theatre.rowLock(rowNumber);
+        lock.lock();
+        try {
+            // the taken bit first: a lock free reservation can only win or lose the seat, never see half a hold
+            this.theatre.beginRowWrite(rowNumber);
+            if (!this.theatre.setBits(word, mask)) {
+                this.theatre.endRowWrite(rowNumber);
+                return 0;
+            }
+            this.heldBits.set(word, this.heldBits.get(word) | mask);
+            count(rowNumber, 1);
+            // again, so a chart row drawn between the two bits is drawn once more
+            this.theatre.rowChanged(rowNumber);
+            this.theatre.endRowWrite(rowNumber);
+
+            int[] generations = generations();
+            int seat = this.theatre.seatIndex(rowNumber, seatNumber);
+            // skip 0 on overflow, 0 means "not held"
+            generations[seat] = generations[seat] + 1 == 0 ? 1 : generations[seat] + 1;
+            generation = generations[seat];
+        } finally {
+            lock.unlock();
+        }
+        this.theatre.notifyHold(rowNumber, seatNumber, true);
+        return generation;
+    }
+
+    // turn a hold into a reservation (valid position), false if the seat is not held
+    boolean confirm(int rowNumber, int seatNumber) {
+        int word = this.theatre.wordIndex(rowNumber, seatNumber);
+        long mask = Theatre.bitMask(seatNumber);
+
+        ReentrantLock lock = this.theatre.rowLock(rowNumber);
+        lock.lock();
+        try {
+            if ((this.heldBits.get(word) & mask) == 0) {
+                return false;
+            }
+            this.heldBits.set(word, this.heldBits.get(word) & ~mask);
+            count(rowNumber, -1);
+            this.theatre.rowChanged(rowNumber);
+        } finally {
+            lock.unlock();
+        }
+        this.theatre.notifyReserved(rowNumber, seatNumber, 1);
+        return true;
+    }
+
+    // give a held seat (valid position) free again, only if it is still the given generation (0 = any)
+    // false if the seat is not held
+    boolean release(int rowNumber, int seatNumber, int generation) {
+        int word = this.theatre.wordIndex(rowNumber, seatNumber);
+        long mask = Theatre.bitMask(seatNumber);
+
+        ReentrantLock lock = this.theatre.rowLock(rowNumber);
+        lock.lock();
+        try {
+            if ((this.heldBits.get(word) & mask) == 0
+                    || (generation != 0 && this.generations[this.theatre.seatIndex(rowNumber, seatNumber)] != generation)) {
+                return false;
+            }
+            this.theatre.beginRowWrite(rowNumber);
+            this.heldBits.set(word, this.heldBits.get(word) & ~mask);
+            count(rowNumber, -1);
+            this.theatre.clearBits(word, mask);
+            this.theatre.endRowWrite(rowNumber);
+        } finally {
+            lock.unlock();
+        }
+        this.theatre.notifyHold(rowNumber, seatNumber, false);
+        return true;
+    }
+
+    // are the seats of mask in the given word of the theatre bitset held
+    boolean isHeld(int word, long mask) {
+        return (this.heldBits.get(word) & mask) != 0;
+    }
+
+    // held bits of the given word of the theatre bitset
+    long heldWord(int word) {
+        return this.heldBits.get(word);
+    }
+
+    int heldCount() {
+        return (int) this.totalHeld.sum();
+    }
+
+    int heldCount(int rowNumber) {
+        return this.rowHeld.get(rowNumber - 1);
+    }
+
+    // drop all holds (not for concurrent use, Theatre.restoreReservedWords)
+    void clear() {
+        for (int i = 0; i < this.heldBits.length(); i++) {
+            this.heldBits.set(i, 0);
+        }
+        for (int row = 0; row < this.rowHeld.length(); row++) {
+            this.rowHeld.set(row, 0);
+        }
+        this.totalHeld.reset();
+    }
+
+    private void count(int rowNumber, int delta) {
+        this.rowHeld.addAndGet(rowNumber - 1, delta);
+        this.totalHeld.add(delta);
+    }
+
+    private synchronized int[] generations() {
+        if (this.generations == null) {
+            this.generations = new int[this.theatre.getNumberOfRows() * this.theatre.getSeatsPerRow()];
+        }
+        return this.generations;
+    }
+}
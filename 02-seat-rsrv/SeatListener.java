@@ -0,0 +1,12 @@
+// told about every committed seat change of a theatre, right after the change and outside the row lock
+// (unless the operation runs inside one that holds it, e.g. reserveFreeRun), so it has to be quick
+// two changes of one seat by different threads can reach the listener in either order: reserved is the change
+// this call made, a listener that keeps seat states reads the state from the theatre (journal, change feed)
+public interface SeatListener {
+    void seatChanged(int rowNumber, int seatNumber, boolean reserved);
+
+    // a hold started or was given back (released or expired), a confirmed hold is a reservation (seatChanged)
+    // holds are not kept anywhere, so most listeners do not need them
+    default void holdChanged(int rowNumber, int seatNumber, boolean held) {
+    }
+}
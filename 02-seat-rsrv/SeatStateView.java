@@ -0,0 +1,14 @@
+// seat bits row by row, what the seating chart is drawn from (the live Theatre or an AvailabilitySnapshot)
+// reservedWord has the bits of all taken seats (reserved or held), heldWord the held ones among them
+public interface SeatStateView {
+    int getNumberOfRows();
+
+    int getSeatsPerRow();
+
+    long reservedWord(int rowNumber, int w);
+
+    long heldWord(int rowNumber, int w);
+
+    // changes whenever the bits of the row change
+    int rowVersion(int rowNumber);
+}
@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// draws the seating chart without String.format or string concatenation per cell:
+//  - the column labels (header and footer) and the row labels are built once into tables
+//  - the cells of every drawn row are kept together with the row version, unchanged rows are just copied
+//  - held seats are drawn as (H)
+//  - render fills one reusable StringBuilder, renderTo streams the chart line by line to any Appendable (e.g. a Writer)
+// renderChangedRows writes only the rows that changed since they were last drawn (partial redraw)
+// draws from a SeatStateView: the live theatre or an AvailabilitySnapshot
+// not thread safe, every thread needs its own renderer (Theatre.getSeatingChart synchronizes on the theatre)
+public class SeatingChartRenderer {
+    private static final String CHART_OFFSET = "    ";
+    private static final String RESERVED_CELL = "(X)";
+    private static final String FREE_CELL = " O ";
+    private static final String HELD_CELL = "(H)";
+
+    private SeatStateView seats;
+    private int numberOfRows;
+    private int seatsPerRow;
+
+    // " 1  2  3 ...  10  11 ..." for all seats, the label of seat j starts at labelStart[j]
+    private String columnLabels;
+    private int[] labelStart;
+    // "---" for every seat
+    private String border;
+    private String[] leftRowLabels;
+    private String[] rightRowLabels;
+
+    // cells of every row ("(X)" / " O " per seat) and the row version they were drawn at, filled on first use
+    private StringBuilder[] rowCells;
+    private int[] rowCellsVersion;
+    private StringBuilder chart = new StringBuilder();
+
+    // constructor, builds the label tables
+    public SeatingChartRenderer(SeatStateView seats) {
+        this.seats = seats;
+        this.numberOfRows = seats.getNumberOfRows();
+        this.seatsPerRow = seats.getSeatsPerRow();
+
+        // same text as String.format(" %-2d", seat) for every seat
+        StringBuilder labels = new StringBuilder();
+        this.labelStart = new int[this.seatsPerRow + 2];
+        for (int j = 1; j <= this.seatsPerRow; j++) {
+            this.labelStart[j] = labels.length();
+            labels.append(' ').append(j);
+            if (j < 10) labels.append(' ');
+        }
+        this.labelStart[this.seatsPerRow + 1] = labels.length();
+        this.columnLabels = labels.toString();
+        this.border = "---".repeat(this.seatsPerRow);
+
+        // same text as String.format("%2d | ", row) and " | %1d" / " | %2d" (2 digits once there are 10+ rows)
+        this.leftRowLabels = new String[this.numberOfRows + 1];
+        this.rightRowLabels = new String[this.numberOfRows + 1];
+        for (int i = 1; i <= this.numberOfRows; i++) {
+            String padded = i < 10 ? " " + i : String.valueOf(i);
+            this.leftRowLabels[i] = padded + " | ";
+            this.rightRowLabels[i] = " | " + (this.numberOfRows < 10 ? String.valueOf(i) : padded);
+        }
+
+        this.rowCells = new StringBuilder[this.numberOfRows + 1];
+        this.rowCellsVersion = new int[this.numberOfRows + 1];
+    }
+
+    // full chart
+    public String render() {
+        return render(1, this.numberOfRows, 1, this.seatsPerRow);
+    }
+
+    // chart of rows startRow..stopRow and seats startSeat..stopSeat (valid bounds, start <= stop),
+    // the text is the same as the one Theatre.getSeatingChart always produced
+    public String render(int startRow, int stopRow, int startSeat, int stopSeat) {
+        this.chart.setLength(0);
+        try {
+            renderTo(this.chart, startRow, stopRow, startSeat, stopSeat);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return this.chart.toString();
+    }
+
+    // write the chart to out, line by line
+    public void renderTo(Appendable out, int startRow, int stopRow, int startSeat, int stopSeat) throws IOException {
+        int seatCount = stopSeat - startSeat + 1;
+        if (seatCount < 0) {
+            throw new IllegalArgumentException("Invalid seat range: " + startSeat + " - " + stopSeat);
+        }
+
+        // top seat numbers and border
+        appendColumnLabels(out, startSeat, stopSeat);
+        out.append('\n');
+        appendBorder(out, seatCount);
+
+        // each row with row numbers on both sides (from top to bottom)
+        for (int i = stopRow; i >= startRow; i--) {
+            out.append(this.leftRowLabels[i]);
+            out.append(rowCells(i), (startSeat - 1) * 3, stopSeat * 3);
+            out.append(this.rightRowLabels[i]).append('\n');
+        }
+
+        // bottom border and seat numbers
+        appendBorder(out, seatCount);
+        appendColumnLabels(out, startSeat, stopSeat);
+    }
+
+    // write the full-width lines of the rows that changed since they were last drawn (top to bottom),
+    // returns the number of rows written, 0 if nothing changed
+    public int renderChangedRows(Appendable out) throws IOException {
+        int written = 0;
+        for (int i = this.numberOfRows; i >= 1; i--) {
+            if (this.rowCells[i] != null && this.rowCellsVersion[i] == this.seats.rowVersion(i)) {
+                continue;
+            }
+            out.append(this.leftRowLabels[i]).append(rowCells(i)).append(this.rightRowLabels[i]).append('\n');
+            written++;
+        }
+        return written;
+    }
+
+    private void appendColumnLabels(Appendable out, int startSeat, int stopSeat) throws IOException {
+        out.append(CHART_OFFSET).append(' ');
+        out.append(this.columnLabels, this.labelStart[startSeat], this.labelStart[stopSeat + 1]);
+    }
+
+    private void appendBorder(Appendable out, int seatCount) throws IOException {
+        out.append(CHART_OFFSET).append('-').append(this.border, 0, seatCount * 3).append("-\n");
+    }
+
+    // cells of a row, redrawn from the seat bits if the row changed since the last time
+    private StringBuilder rowCells(int row) {
+        // the version is read before the bits, a change in between just makes the next call redraw again
+        int version = this.seats.rowVersion(row);
+        StringBuilder cells = this.rowCells[row];
+        if (cells != null && this.rowCellsVersion[row] == version) {
+            return cells;
+        }
+
+        if (cells == null) {
+            cells = new StringBuilder(this.seatsPerRow * 3);
+            this.rowCells[row] = cells;
+        }
+        cells.setLength(0);
+        for (int w = 0; w * 64 < this.seatsPerRow; w++) {
+            long reserved = this.seats.reservedWord(row, w);
+            long held = this.seats.heldWord(row, w);
+            int seatsInWord = Math.min(64, this.seatsPerRow - w * 64);
+            for (int bit = 0; bit < seatsInWord; bit++) {
+                if ((held >>> bit & 1) != 0) {
+                    cells.append(HELD_CELL);
+                } else {
+                    cells.append((reserved >>> bit & 1) != 0 ? RESERVED_CELL : FREE_CELL);
+                }
+            }
+        }
+        this.rowCellsVersion[row] = version;
+        return cells;
+    }
+}
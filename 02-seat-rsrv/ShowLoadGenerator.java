@@ -0,0 +1,80 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// load generator for ShowRegistry: worker threads book and cancel random seats of random shows
+// every combination of show count and thread count runs for a fixed time and reports reservations per second
+// usage: java ShowLoadGenerator [seconds per run] [max threads] [rows] [seats per row]
+public class ShowLoadGenerator {
+
+    private static final int[] SHOW_COUNTS = {1, 10, 100, 1000, 10000};
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int seatsPerRow = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        System.out.println("==> Theatre " + rows + " x " + seatsPerRow + " per show, " + seconds + " s per run");
+        System.out.printf("%8s %8s %16s %16s%n", "shows", "threads", "reservations/s", "attempts/s");
+        for (int shows : SHOW_COUNTS) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                run(shows, threads, seconds, rows, seatsPerRow);
+            }
+            // the largest thread count is always measured, even if it is not a power of two
+            if (Integer.bitCount(maxThreads) != 1) {
+                run(shows, maxThreads, seconds, rows, seatsPerRow);
+            }
+        }
+    }
+
+    // one run, every operation is a reservation attempt, half of them also cancel a random seat
+    // so the shows stay about half full instead of filling up
+    private static void run(int shows, int threadCount, int seconds, int rows, int seatsPerRow) throws InterruptedException {
+        ShowRegistry registry = new ShowRegistry();
+        // ids spread like real ids, not 0..n-1
+        long[] showIds = new long[shows];
+        for (int i = 0; i < shows; i++) {
+            showIds[i] = 1_000_000L + i * 7919L;
+            registry.addShow(showIds[i], "Auditorium " + (i % 200 + 1), rows, seatsPerRow);
+        }
+
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong reservations = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long localAttempts = 0;
+                long localReservations = 0;
+                while (running.get()) {
+                    for (int batch = 0; batch < 1024; batch++) {
+                        long showId = showIds[random.nextInt(showIds.length)];
+                        if (registry.reserveSeat(showId, random.nextInt(rows) + 1, random.nextInt(seatsPerRow) + 1)) {
+                            localReservations++;
+                        }
+                        if (random.nextBoolean()) {
+                            registry.cancelReservation(showId, random.nextInt(rows) + 1, random.nextInt(seatsPerRow) + 1);
+                        }
+                    }
+                    localAttempts += 1024;
+                }
+                attempts.addAndGet(localAttempts);
+                reservations.addAndGet(localReservations);
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%8d %8d %,16.0f %,16.0f%n", shows, threadCount, reservations.get() / elapsed, attempts.get() / elapsed);
+    }
+}
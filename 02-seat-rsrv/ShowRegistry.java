@@ -0,0 +1,229 @@
+import java.util.Arrays;
+import java.util.List;
+
+// registry of many shows (showtimes of many auditoriums) in one JVM, every show has its own Theatre
+// the shows are split over shards by show id, the shard index is a hash of the id
+// every shard has its own open-addressing id -> show table (long keys, no boxing), lookups read a
+// volatile reference to the table and never lock; adding or removing a show copies the shard's table
+// (shows are added rarely and looked up all the time), so the shards keep writers from blocking each other
+// requests are routed to the owning shard and handled in the calling thread, Theatre is thread safe
+public class ShowRegistry {
+
+    public static final int DEFAULT_SHARDS = 64;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    // constructor with the default number of shards
+    public ShowRegistry() {
+        this(DEFAULT_SHARDS);
+    }
+
+    // constructor, shardCount is rounded up to a power of two
+    public ShowRegistry(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        int size = Integer.highestOneBit(shardCount);
+        if (size < shardCount) size <<= 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.shardMask = size - 1;
+    }
+
+    // add a new show with an empty theatre, the id must not be in use
+    public Show addShow(long showId, String auditorium, int numberOfRows, int seatsPerRow) {
+        if (showId == EMPTY_KEY) {
+            throw new IllegalArgumentException("Invalid show id: " + showId);
+        }
+        Show show = new Show(showId, auditorium, new Theatre(numberOfRows, seatsPerRow));
+        shardOf(showId).add(show);
+        return show;
+    }
+
+    // remove a show, returns false if it was not registered
+    public boolean removeShow(long showId) {
+        return showId != EMPTY_KEY && shardOf(showId).remove(showId);
+    }
+
+    // show by id, null if unknown
+    public Show getShow(long showId) {
+        return showId == EMPTY_KEY ? null : shardOf(showId).find(showId);
+    }
+
+    // number of registered shows
+    public int getShowCount() {
+        int count = 0;
+        for (Shard shard : this.shards) {
+            count += shard.table.size;
+        }
+        return count;
+    }
+
+    public int getShardCount() {
+        return this.shards.length;
+    }
+
+    // ================ routed operations ================
+    // false = seat already taken, an invalid seat throws (so a bad request is not mistaken for a lost race)
+    public boolean reserveSeat(long showId, int rowNumber, int seatNumber) {
+        return requireSeat(showId, rowNumber, seatNumber).reserveSeat(rowNumber, seatNumber);
+    }
+
+    // false = seat not reserved, an invalid seat throws
+    public boolean cancelReservation(long showId, int rowNumber, int seatNumber) {
+        return requireSeat(showId, rowNumber, seatNumber).cancelReservation(rowNumber, seatNumber);
+    }
+
+    // adjacent seats in one row, all or nothing, empty list if no row has room
+    public List<Seat> reserveGroup(long showId, int count) {
+        Theatre theatre = requireShow(showId).getTheatre();
+        return theatre.reserveGroup(count, 1, theatre.getNumberOfRows());
+    }
+
+    public String getSeatingChart(long showId) {
+        return requireShow(showId).getTheatre().getSeatingChart();
+    }
+
+    private Show requireShow(long showId) {
+        Show show = getShow(showId);
+        if (show == null) {
+            throw new IllegalArgumentException("Unknown show: " + showId);
+        }
+        return show;
+    }
+
+    // theatre of the show, if it has that seat
+    private Theatre requireSeat(long showId, int rowNumber, int seatNumber) {
+        Theatre theatre = requireShow(showId).getTheatre();
+        if (!theatre.isValidPosition(rowNumber, seatNumber)) {
+            throw new IllegalArgumentException("Invalid seat: R" + rowNumber + "-S" + seatNumber);
+        }
+        return theatre;
+    }
+
+    private Shard shardOf(long showId) {
+        return this.shards[hash(showId) & this.shardMask];
+    }
+
+    // mix the bits so sequential ids spread over shards and slots (murmur3 finalizer)
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    // ================ shard ================
+    // immutable linear probing table, load factor <= 0.5, the slot starts with the high hash bits
+    // (the low bits already picked the shard)
+    private static class Table {
+        private final long[] keys;
+        private final Show[] shows;
+        private final int size;
+
+        Table(int capacity, int size) {
+            this.keys = new long[capacity];
+            Arrays.fill(this.keys, EMPTY_KEY);
+            this.shows = new Show[capacity];
+            this.size = size;
+        }
+
+        int slotOf(long showId) {
+            int mask = this.keys.length - 1;
+            int slot = Integer.rotateRight(hash(showId), 16) & mask;
+            while (this.keys[slot] != EMPTY_KEY && this.keys[slot] != showId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    private static class Shard {
+        private volatile Table table = new Table(8, 0);
+
+        Show find(long showId) {
+            Table current = this.table;
+            return current.shows[current.slotOf(showId)];
+        }
+
+        synchronized void add(Show show) {
+            Table current = this.table;
+            if (current.keys[current.slotOf(show.getId())] != EMPTY_KEY) {
+                throw new IllegalArgumentException("Show already exists: " + show.getId());
+            }
+            int capacity = current.keys.length;
+            while ((current.size + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+            this.table = copy(current, capacity, current.size + 1, show, EMPTY_KEY);
+        }
+
+        synchronized boolean remove(long showId) {
+            Table current = this.table;
+            if (current.keys[current.slotOf(showId)] == EMPTY_KEY) {
+                return false;
+            }
+            this.table = copy(current, current.keys.length, current.size - 1, null, showId);
+            return true;
+        }
+
+        // new table with all shows of the old one except skipId, plus added (if not null)
+        private static Table copy(Table old, int capacity, int size, Show added, long skipId) {
+            Table result = new Table(capacity, size);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != EMPTY_KEY && old.keys[i] != skipId) {
+                    put(result, old.shows[i]);
+                }
+            }
+            if (added != null) {
+                put(result, added);
+            }
+            return result;
+        }
+
+        private static void put(Table table, Show show) {
+            int slot = table.slotOf(show.getId());
+            table.keys[slot] = show.getId();
+            table.shows[slot] = show;
+        }
+    }
+}
+
+// ======= show class ========================
+// one showtime: id, auditorium name and the seats of that show
+class Show {
+    private long id;
+    private String auditorium;
+    private Theatre theatre;
+    private ReservationService service;
+
+    public Show(long id, String auditorium, Theatre theatre) {
+        this.id = id;
+        this.auditorium = auditorium;
+        this.theatre = theatre;
+        this.service = new ReservationService(theatre);
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public String getAuditorium() {
+        return this.auditorium;
+    }
+
+    public Theatre getTheatre() {
+        return this.theatre;
+    }
+
+    // console style service (messages) for this show
+    public ReservationService getService() {
+        return this.service;
+    }
+}
@@ -0,0 +1,900 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// theatre class, the seat states are kept in a bitset (1 bit per seat, 1 = taken: reserved or held)
+// every row starts on a new 64 bit word, so row r / seat s is bit (s-1) % 64 of word (r-1) * wordsPerRow + (s-1) / 64
+// Seat objects are only created on demand (getSeat, findNearbyAvailableSeats)
+//
+// thread safe: claiming a single seat is one CAS on its word (no locks, no double booking),
+// multi-seat operations take the lock stripe of their row(s) so they can roll back cleanly on a conflict
+//
+// holds (checkout in progress) are kept by SeatHolds, a held seat is taken in the bitset like a reserved one
+//
+// snapshots (getAvailabilitySnapshot, copied by AvailabilitySnapshot.take): every row has a sequence number
+// that is odd while a change of more than one word is being written, an unchanged theatre gives back the last snapshot
+// the seating chart is drawn by a SeatingChartRenderer
+//
+// every row has a version (bumped on each change) and a cached largest free run for that version,
+// group bookings use it to skip full rows without scanning them
+//
+// optional SeatListeners hear about every committed change (journal, change feed...) after it is made,
+// outside the row lock, so a listener does not make single seat reservations lock
+public class Theatre implements SeatStateView {
+    // number of row lock stripes, rows share a lock when there are more rows than stripes
+    private static final int LOCK_STRIPES = 64;
+
+    private int numberOfRows;
+    private int seatsPerRow;
+    private int wordsPerRow;
+    private AtomicLongArray reservedBits;
+    private SeatHolds holds;
+    private ReentrantLock[] rowLocks;
+    private AtomicIntegerArray rowVersions;
+    // per row seqlock, odd while a multi word change is written (only changed under the row lock)
+    private AtomicIntegerArray rowSequences;
+    private volatile AvailabilitySnapshot latestSnapshot;
+    private AtomicLong snapshotVersions = new AtomicLong();
+    // seat counters, updated with every change of the bits (no scans), readable without locks
+    // taken = reserved or held (SeatHolds counts the held ones)
+    private AtomicIntegerArray rowTaken;
+    private LongAdder totalTaken = new LongAdder();
+    // per row (version << 32) | largest free run, valid while the version matches
+    private AtomicLongArray freeRunCache;
+    // renderer used by getSeatingChart, created on first use
+    private SeatingChartRenderer chartRenderer;
+    private volatile SeatListener seatListener;
+    // all listeners, seatListener calls them (guarded by this)
+    private SeatListener[] seatListeners = new SeatListener[0];
+
+    // constructor rows-x-columns
+    public Theatre(int numberOfRows, int seatsPerRow) {
+        if (numberOfRows < 1 || seatsPerRow < 1) {
+            throw new IllegalArgumentException("Invalid theatre size: " + numberOfRows + " x " + seatsPerRow);
+        }
+        this.numberOfRows = numberOfRows;
+        this.seatsPerRow = seatsPerRow;
+        this.wordsPerRow = (seatsPerRow + 63) / 64;
+        // all seats start free (all bits 0)
+        this.reservedBits = new AtomicLongArray(numberOfRows * this.wordsPerRow);
+        this.holds = new SeatHolds(this, numberOfRows * this.wordsPerRow);
+
+        this.rowLocks = new ReentrantLock[Math.min(numberOfRows, LOCK_STRIPES)];
+        for (int i = 0; i < this.rowLocks.length; i++) {
+            this.rowLocks[i] = new ReentrantLock();
+        }
+
+        this.rowVersions = new AtomicIntegerArray(numberOfRows);
+        this.rowSequences = new AtomicIntegerArray(numberOfRows);
+        this.rowTaken = new AtomicIntegerArray(numberOfRows);
+        this.freeRunCache = new AtomicLongArray(numberOfRows);
+        for (int i = 0; i < numberOfRows; i++) {
+            this.freeRunCache.set(i, seatsPerRow);
+        }
+    }
+
+    // getter for number of rows
+    @Override
+    public int getNumberOfRows() {
+        return this.numberOfRows;
+    }
+
+    // getter for number of seats per row
+    @Override
+    public int getSeatsPerRow() {
+        return this.seatsPerRow;
+    }
+
+    // ================ counters ================
+    // the counters follow every change right away, a reader running next to a change may see the new
+    // taken count with the old held count for a moment (a hold in progress then looks reserved)
+    public int getCapacity() {
+        return this.numberOfRows * this.seatsPerRow;
+    }
+
+    // free seats in the whole theatre (not reserved and not held)
+    public int getFreeSeatCount() {
+        return getCapacity() - (int) this.totalTaken.sum();
+    }
+
+    public int getReservedSeatCount() {
+        return (int) this.totalTaken.sum() - this.holds.heldCount();
+    }
+
+    public int getHeldSeatCount() {
+        return this.holds.heldCount();
+    }
+
+    // free seats in one row
+    public int getFreeSeatCount(int rowNumber) {
+        checkRow(rowNumber);
+        return this.seatsPerRow - this.rowTaken.get(rowNumber - 1);
+    }
+
+    public int getReservedSeatCount(int rowNumber) {
+        checkRow(rowNumber);
+        return this.rowTaken.get(rowNumber - 1) - this.holds.heldCount(rowNumber);
+    }
+
+    public int getHeldSeatCount(int rowNumber) {
+        checkRow(rowNumber);
+        return this.holds.heldCount(rowNumber);
+    }
+
+    private void checkRow(int rowNumber) {
+        if (rowNumber < 1 || rowNumber > this.numberOfRows) {
+            throw new IndexOutOfBoundsException("Invalid row: " + rowNumber);
+        }
+    }
+
+    // the only listener for committed seat changes (replaces all others), null removes them all
+    // set it before the theatre is used by several threads, operations already running may miss it
+    public synchronized void setSeatListener(SeatListener listener) {
+        this.seatListeners = listener == null ? new SeatListener[0] : new SeatListener[] {listener};
+        publishListeners();
+    }
+
+    // one more listener next to the others (e.g. journal and change feed), called in the order they were added
+    public synchronized void addSeatListener(SeatListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        this.seatListeners = Arrays.copyOf(this.seatListeners, this.seatListeners.length + 1);
+        this.seatListeners[this.seatListeners.length - 1] = listener;
+        publishListeners();
+    }
+
+    public synchronized void removeSeatListener(SeatListener listener) {
+        SeatListener[] kept = Arrays.stream(this.seatListeners).filter(l -> l != listener).toArray(SeatListener[]::new);
+        this.seatListeners = kept;
+        publishListeners();
+    }
+
+    // the operations call one listener, several are wrapped into one that calls them all
+    private void publishListeners() {
+        SeatListener[] all = this.seatListeners;
+        if (all.length == 0) {
+            this.seatListener = null;
+        } else if (all.length == 1) {
+            this.seatListener = all[0];
+        } else {
+            this.seatListener = new SeatListener() {
+                @Override
+                public void seatChanged(int rowNumber, int seatNumber, boolean reserved) {
+                    for (SeatListener listener : all) {
+                        listener.seatChanged(rowNumber, seatNumber, reserved);
+                    }
+                }
+
+                @Override
+                public void holdChanged(int rowNumber, int seatNumber, boolean held) {
+                    for (SeatListener listener : all) {
+                        listener.holdChanged(rowNumber, seatNumber, held);
+                    }
+                }
+            };
+        }
+    }
+
+    // reserve seat method, lock free: only one of any number of concurrent callers gets the seat
+    public boolean reserveSeat(int rowNumber, int seatNumber) {
+        return changeSeat(rowNumber, seatNumber, true);
+    }
+
+    // cancel reservation method, under the row lock (a held seat is not reserved and cannot be cancelled)
+    public boolean cancelReservation(int rowNumber, int seatNumber) {
+        return changeSeat(rowNumber, seatNumber, false);
+    }
+
+    // single seat CAS, reservations are lock free, the listener is told after a successful CAS
+    private boolean changeSeat(int rowNumber, int seatNumber, boolean reserve) {
+        if (!isValidPosition(rowNumber, seatNumber)) {
+            return false;
+        }
+        int word = wordIndex(rowNumber, seatNumber);
+        long mask = bitMask(seatNumber);
+        boolean changed;
+        if (reserve) {
+            changed = setBits(word, mask);
+        } else {
+            // no hold can start or end during the check
+            ReentrantLock lock = rowLock(rowNumber);
+            lock.lock();
+            try {
+                changed = !this.holds.isHeld(word, mask) && clearBits(word, mask);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        SeatListener listener = this.seatListener;
+        if (changed && listener != null) {
+            listener.seatChanged(rowNumber, seatNumber, reserve);
+        }
+        return changed;
+    }
+
+    // ================ holds ================
+    // hold a free seat, it stays taken for everyone else until confirmHold, releaseHold or expireHold
+    // returns the generation of this hold (never 0), 0 if the seat is not free
+    public int holdSeat(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber) ? this.holds.hold(rowNumber, seatNumber) : 0;
+    }
+
+    // turn a hold into a reservation, false if the seat is not held
+    public boolean confirmHold(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber) && this.holds.confirm(rowNumber, seatNumber);
+    }
+
+    // give a held seat free again, false if the seat is not held
+    public boolean releaseHold(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber) && this.holds.release(rowNumber, seatNumber, 0);
+    }
+
+    // release the hold only if it is still the given generation (expiry timers), false otherwise
+    boolean expireHold(int rowNumber, int seatNumber, int generation) {
+        return generation != 0 && isValidPosition(rowNumber, seatNumber) && this.holds.release(rowNumber, seatNumber, generation);
+    }
+
+    // is seat held
+    public boolean isHeld(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber) && this.holds.isHeld(wordIndex(rowNumber, seatNumber), bitMask(seatNumber));
+    }
+
+    // is seat free (not reserved and not held)
+    public boolean isAvailable(int rowNumber, int seatNumber) {
+        return isValidPosition(rowNumber, seatNumber)
+            && (this.reservedBits.get(wordIndex(rowNumber, seatNumber)) & bitMask(seatNumber)) == 0;
+    }
+
+    // seat index 0 .. rows * seatsPerRow - 1, row by row
+    int seatIndex(int rowNumber, int seatNumber) {
+        return (rowNumber - 1) * this.seatsPerRow + (seatNumber - 1);
+    }
+
+    // reserve count seats next to each other (firstSeat, firstSeat + 1, ...) in one row, all or nothing
+    public boolean reserveSeats(int rowNumber, int firstSeat, int count) {
+        if (count < 1 || !isValidPosition(rowNumber, firstSeat) || !isValidPosition(rowNumber, firstSeat + count - 1)) {
+            return false;
+        }
+
+        int lastSeat = firstSeat + count - 1;
+        // a range inside one word is a single CAS, snapshots only need to know about longer ones
+        boolean multiWord = (firstSeat - 1) >>> 6 != (lastSeat - 1) >>> 6;
+        ReentrantLock lock = rowLock(rowNumber);
+        lock.lock();
+        if (multiWord) beginRowWrite(rowNumber);
+        try {
+            // one CAS per word covered by the range, undo the words already set if a seat is taken
+            int seat = firstSeat;
+            while (seat <= lastSeat) {
+                int wordEnd = Math.min(lastSeat, ((seat - 1) | 63) + 1);
+                if (!setBits(wordIndex(rowNumber, seat), rangeMask(seat, wordEnd))) {
+                    for (int undo = firstSeat; undo < seat; undo = ((undo - 1) | 63) + 2) {
+                        clearBits(wordIndex(rowNumber, undo), rangeMask(undo, Math.min(seat - 1, ((undo - 1) | 63) + 1)));
+                    }
+                    return false;
+                }
+                seat = wordEnd + 1;
+            }
+        } finally {
+            if (multiWord) endRowWrite(rowNumber);
+            lock.unlock();
+        }
+        notifyReserved(rowNumber, firstSeat, count);
+        return true;
+    }
+
+    // tell the listener (if any) about count seats reserved from firstSeat on, after the row lock is given back
+    void notifyReserved(int rowNumber, int firstSeat, int count) {
+        SeatListener listener = this.seatListener;
+        if (listener != null) {
+            for (int seat = firstSeat; seat < firstSeat + count; seat++) {
+                listener.seatChanged(rowNumber, seat, true);
+            }
+        }
+    }
+
+    // tell the listener (if any) about a hold that started or ended, after the row lock is given back
+    void notifyHold(int rowNumber, int seatNumber, boolean held) {
+        SeatListener listener = this.seatListener;
+        if (listener != null) {
+            listener.holdChanged(rowNumber, seatNumber, held);
+        }
+    }
+
+    // reserve count adjacent seats somewhere in the row, returns the first seat or -1 if there is no free run
+    // the search and the commit happen under the row lock, a failed commit (a single seat was taken
+    // in between) means the row changed, so the search just continues after that seat
+    public int reserveFreeRun(int rowNumber, int count) {
+        if (count < 1 || rowNumber < 1 || rowNumber > this.numberOfRows || cachedFreeRun(rowNumber) < count) {
+            return -1;
+        }
+
+        ReentrantLock lock = rowLock(rowNumber);
+        lock.lock();
+        try {
+            int first = findFreeRun(rowNumber, count, 1);
+            while (first > 0 && !reserveSeats(rowNumber, first, count)) {
+                first = findFreeRun(rowNumber, count, first);
+            }
+            if (first < 0) {
+                // remember the largest run, the next group booking skips this row while it does not change
+                largestFreeRun(rowNumber);
+            }
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // reserve count adjacent seats in the first row of beginRow..endRow that has room, all or nothing
+    // returns the reserved seats, empty list if no row has a free run that long
+    public List<Seat> reserveGroup(int count, int beginRow, int endRow) {
+        List<Seat> seats = new ArrayList<>();
+        int startRow = Math.max(1, Math.min(beginRow, endRow));
+        int stopRow = Math.min(this.numberOfRows, Math.max(beginRow, endRow));
+
+        for (int row = startRow; row <= stopRow; row++) {
+            int first = reserveFreeRun(row, count);
+            if (first > 0) {
+                for (int seat = first; seat < first + count; seat++) {
+                    seats.add(new Seat(row, seat, true));
+                }
+                break;
+            }
+        }
+        return seats;
+    }
+
+    // reserve any count free seats inside the region (front rows and low seat numbers first), all or nothing
+    // the region's row locks are taken in ascending order, so region bookings cannot deadlock each other,
+    // if fewer than count seats can be claimed everything claimed so far is released again
+    public List<Seat> reserveAnyInRegion(int count, int beginRow, int endRow, int beginSeat, int endSeat) {
+        List<Seat> seats = new ArrayList<>();
+        int startRow = Math.max(1, Math.min(beginRow, endRow));
+        int stopRow = Math.min(this.numberOfRows, Math.max(beginRow, endRow));
+        int startSeat = Math.max(1, Math.min(beginSeat, endSeat));
+        int stopSeat = Math.min(this.seatsPerRow, Math.max(beginSeat, endSeat));
+        if (count < 1 || startRow > stopRow || startSeat > stopSeat) {
+            return seats;
+        }
+
+        // stripes of the region, ascending
+        int stripes = Math.min(stopRow - startRow + 1, this.rowLocks.length);
+        int firstStripe = stripes == this.rowLocks.length ? 0 : (startRow - 1) % this.rowLocks.length;
+        for (int i = 0; i < stripes; i++) {
+            lockStripeInOrder(firstStripe, i, stripes).lock();
+        }
+        for (int row = startRow; row <= stopRow; row++) {
+            beginRowWrite(row);
+        }
+        try {
+            for (int row = startRow; row <= stopRow && seats.size() < count; row++) {
+                int seat = nextFreeSeat(row, startSeat);
+                while (seat > 0 && seat <= stopSeat && seats.size() < count) {
+                    // a lock free single reservation can still win the seat, then just move on
+                    if (setBits(wordIndex(row, seat), bitMask(seat))) {
+                        seats.add(new Seat(row, seat, true));
+                    }
+                    seat = nextFreeSeat(row, seat + 1);
+                }
+            }
+
+            if (seats.size() < count) {
+                for (Seat seat : seats) {
+                    clearBits(wordIndex(seat.getRowNumber(), seat.getSeatNumber()), bitMask(seat.getSeatNumber()));
+                }
+                seats.clear();
+            }
+        } finally {
+            for (int row = startRow; row <= stopRow; row++) {
+                endRowWrite(row);
+            }
+            for (int i = stripes - 1; i >= 0; i--) {
+                lockStripeInOrder(firstStripe, i, stripes).unlock();
+            }
+        }
+        for (Seat seat : seats) {
+            notifyReserved(seat.getRowNumber(), seat.getSeatNumber(), 1);
+        }
+        return seats;
+    }
+
+    // reserve all the given seats or none (any rows, any order), false if one of them is not free or not valid
+    // the stripes of all rows involved are locked in ascending order, like reserveAnyInRegion
+    public boolean reserveAll(List<Seat> seats) {
+        if (seats.isEmpty()) {
+            return false;
+        }
+        boolean[] stripeUsed = new boolean[this.rowLocks.length];
+        int[] rows = new int[seats.size()];
+        for (int i = 0; i < rows.length; i++) {
+            Seat seat = seats.get(i);
+            if (!isValidPosition(seat.getRowNumber(), seat.getSeatNumber())) {
+                return false;
+            }
+            stripeUsed[(seat.getRowNumber() - 1) % this.rowLocks.length] = true;
+            rows[i] = seat.getRowNumber();
+        }
+        // every row once
+        Arrays.sort(rows);
+        rows = Arrays.stream(rows).distinct().toArray();
+
+        for (int stripe = 0; stripe < stripeUsed.length; stripe++) {
+            if (stripeUsed[stripe]) this.rowLocks[stripe].lock();
+        }
+        for (int row : rows) {
+            beginRowWrite(row);
+        }
+        try {
+            for (int i = 0; i < seats.size(); i++) {
+                Seat seat = seats.get(i);
+                if (!setBits(wordIndex(seat.getRowNumber(), seat.getSeatNumber()), bitMask(seat.getSeatNumber()))) {
+                    // taken (or listed twice), give back what this call got so far
+                    for (int j = 0; j < i; j++) {
+                        Seat won = seats.get(j);
+                        clearBits(wordIndex(won.getRowNumber(), won.getSeatNumber()), bitMask(won.getSeatNumber()));
+                    }
+                    return false;
+                }
+            }
+        } finally {
+            for (int row : rows) {
+                endRowWrite(row);
+            }
+            for (int stripe = stripeUsed.length - 1; stripe >= 0; stripe--) {
+                if (stripeUsed[stripe]) this.rowLocks[stripe].unlock();
+            }
+        }
+        for (Seat seat : seats) {
+            notifyReserved(seat.getRowNumber(), seat.getSeatNumber(), 1);
+        }
+        return true;
+    }
+
+    // i-th lock of a stripe range in ascending stripe order (the range can wrap around the stripe array)
+    private ReentrantLock lockStripeInOrder(int firstStripe, int i, int stripes) {
+        int wrapped = firstStripe + stripes - this.rowLocks.length;
+        // stripes 0..wrapped-1 come from the wrap around and are the lowest, then firstStripe..end
+        if (wrapped > 0) {
+            return this.rowLocks[i < wrapped ? i : firstStripe + i - wrapped];
+        }
+        return this.rowLocks[firstStripe + i];
+    }
+
+    // cached largest free run of the row, Integer.MAX_VALUE if the row changed since it was computed
+    // (a busy row is cheaper to search directly than to measure first)
+    private int cachedFreeRun(int rowNumber) {
+        long cached = this.freeRunCache.get(rowNumber - 1);
+        return (int) (cached >>> 32) == this.rowVersions.get(rowNumber - 1) ? (int) cached : Integer.MAX_VALUE;
+    }
+
+    // largest number of adjacent free seats in the row, from the cache if the row did not change
+    public int largestFreeRun(int rowNumber) {
+        int version = this.rowVersions.get(rowNumber - 1);
+        long cached = this.freeRunCache.get(rowNumber - 1);
+        if ((int) (cached >>> 32) == version) {
+            return (int) cached;
+        }
+
+        // walk the runs of free bits word by word, current = free run still open at the word border
+        int largest = 0;
+        int current = 0;
+        for (int w = 0; w < this.wordsPerRow; w++) {
+            long free = freeBits(rowNumber, w);
+            int position = 0;
+            while (position < 64) {
+                long rest = free >>> position;
+                if (rest == 0) {
+                    current = 0;
+                    break;
+                }
+                int taken = Long.numberOfTrailingZeros(rest);
+                if (taken > 0) {
+                    current = 0;
+                    position += taken;
+                }
+                int run = Long.numberOfTrailingZeros(~(free >>> position));
+                current += run;
+                largest = Math.max(largest, current);
+                position += run;
+            }
+        }
+        this.freeRunCache.set(rowNumber - 1, ((long) version << 32) | largest);
+        return largest;
+    }
+
+    // first seat of a run of count free seats at or after fromSeat, -1 if there is none
+    // inside a word the run starts are found with shift-and (x & x >>> 1 keeps the starts of runs of 2, ...),
+    // runs across word borders continue from the free seats at the top of the previous word
+    int findFreeRun(int rowNumber, int count, int fromSeat) {
+        int seat = Math.max(1, fromSeat);
+        if (count < 1 || seat > this.seatsPerRow) {
+            return -1;
+        }
+
+        int carry = 0;
+        for (int w = (seat - 1) >>> 6; w < this.wordsPerRow; w++) {
+            long free = freeBits(rowNumber, w);
+            if (w == (seat - 1) >>> 6) {
+                free &= -1L << ((seat - 1) & 63);
+            }
+
+            // run started in the previous word(s), needs the lowest count - carry seats of this word
+            if (carry > 0 && count - carry <= 64) {
+                int need = count - carry;
+                long low = need == 64 ? -1L : (1L << need) - 1;
+                if ((free & low) == low) {
+                    return w * 64 - carry + 1;
+                }
+            }
+
+            if (count <= 64) {
+                long starts = free;
+                for (int length = 1; length < count && starts != 0; ) {
+                    int shift = Math.min(length, count - length);
+                    starts &= starts >>> shift;
+                    length += shift;
+                }
+                if (starts != 0) {
+                    return w * 64 + Long.numberOfTrailingZeros(starts) + 1;
+                }
+            }
+
+            carry = free == -1L ? carry + 64 : Long.numberOfLeadingZeros(~free);
+        }
+        return -1;
+    }
+
+    // free seats of the w-th word of the row as bits, seats past the end of the row count as taken
+    private long freeBits(int rowNumber, int w) {
+        long free = ~this.reservedBits.get((rowNumber - 1) * this.wordsPerRow + w);
+        int seatsInWord = this.seatsPerRow - w * 64;
+        return seatsInWord >= 64 ? free : free & ((1L << seatsInWord) - 1);
+    }
+
+    // next free seat at or after fromSeat, -1 if none (one word = 64 seats per step)
+    int nextFreeSeat(int rowNumber, int fromSeat) {
+        int seat = Math.max(1, fromSeat);
+        while (seat <= this.seatsPerRow) {
+            long free = ~this.reservedBits.get(wordIndex(rowNumber, seat)) & (-1L << ((seat - 1) & 63));
+            if (free != 0) {
+                int found = ((seat - 1) & ~63) + Long.numberOfTrailingZeros(free) + 1;
+                return found <= this.seatsPerRow ? found : -1;
+            }
+            seat = ((seat - 1) | 63) + 2;
+        }
+        return -1;
+    }
+
+    // previous free seat at or before fromSeat, -1 if none
+    int previousFreeSeat(int rowNumber, int fromSeat) {
+        int seat = Math.min(this.seatsPerRow, fromSeat);
+        while (seat >= 1) {
+            int shift = 63 - ((seat - 1) & 63);
+            long free = (~this.reservedBits.get(wordIndex(rowNumber, seat)) << shift) >>> shift;
+            if (free != 0) {
+                return ((seat - 1) & ~63) + 64 - Long.numberOfLeadingZeros(free);
+            }
+            seat = (seat - 1) & ~63;
+        }
+        return -1;
+    }
+
+    // taken bits (reserved or held) of the w-th word of the row (bit i = seat w * 64 + i + 1)
+    @Override
+    public long reservedWord(int rowNumber, int w) {
+        return this.reservedBits.get((rowNumber - 1) * this.wordsPerRow + w);
+    }
+
+    // all row locks in ascending order, while they are held only single seat reservations (lock free) can change seats
+    void lockAllRows() {
+        for (ReentrantLock lock : this.rowLocks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAllRows() {
+        for (int i = this.rowLocks.length - 1; i >= 0; i--) {
+            this.rowLocks[i].unlock();
+        }
+    }
+
+    // copy of the reserved seat words (rows one after another, wordsPerRow words each), holds are left out
+    // taken from a snapshot, so a change of several words (or one rolled back) is in it completely or not at all
+    long[] copyReservedWords() {
+        return getAvailabilitySnapshot().copyReservedWords();
+    }
+
+    // replace all seat states with a copy from copyReservedWords (e.g. loaded from a snapshot), holds are dropped,
+    // not for concurrent use, every row counts as changed
+    void restoreReservedWords(long[] words) {
+        if (words.length != this.reservedBits.length()) {
+            throw new IllegalArgumentException("Expected " + this.reservedBits.length() + " words, got " + words.length);
+        }
+        this.totalTaken.reset();
+        this.holds.clear();
+        for (int row = 0; row < this.numberOfRows; row++) {
+            int taken = 0;
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                int i = row * this.wordsPerRow + w;
+                this.reservedBits.set(i, words[i]);
+                taken += Long.bitCount(words[i]);
+            }
+            this.rowTaken.set(row, taken);
+            this.totalTaken.add(taken);
+            this.rowVersions.incrementAndGet(row);
+        }
+    }
+
+    // held bits of the w-th word of the row
+    @Override
+    public long heldWord(int rowNumber, int w) {
+        return this.holds.heldWord((rowNumber - 1) * this.wordsPerRow + w);
+    }
+
+    // version of the row, changes with every reservation or cancellation in it
+    @Override
+    public int rowVersion(int rowNumber) {
+        return this.rowVersions.get(rowNumber - 1);
+    }
+
+    // ================ snapshots ================
+    // consistent read only copy of all seat states, the last one again if no row changed since
+    public AvailabilitySnapshot getAvailabilitySnapshot() {
+        AvailabilitySnapshot latest = this.latestSnapshot;
+        if (latest != null && latest.isCurrent(this)) {
+            return latest;
+        }
+        AvailabilitySnapshot snapshot = AvailabilitySnapshot.take(this, this.snapshotVersions.incrementAndGet());
+        this.latestSnapshot = snapshot;
+        return snapshot;
+    }
+
+    // sequence of the row seqlock, odd while a multi word change of the row is being written
+    int rowSequence(int rowNumber) {
+        return this.rowSequences.get(rowNumber - 1);
+    }
+
+    // number of words of the seat bitset (wordsPerRow per row)
+    int wordCount() {
+        return this.reservedBits.length();
+    }
+
+    // copy the version and the bits of a row (version first, a change during the copy makes it look out of date)
+    void copyRow(int rowNumber, int[] versions, long[] reserved, long[] held) {
+        versions[rowNumber - 1] = this.rowVersions.get(rowNumber - 1);
+        for (int i = (rowNumber - 1) * this.wordsPerRow; i < rowNumber * this.wordsPerRow; i++) {
+            held[i] = this.holds.heldWord(i);
+            reserved[i] = this.reservedBits.get(i);
+        }
+    }
+
+    // seqlock around a change of more than one word of the row, under the row lock
+    void beginRowWrite(int rowNumber) {
+        this.rowSequences.incrementAndGet(rowNumber - 1);
+    }
+
+    void endRowWrite(int rowNumber) {
+        this.rowSequences.incrementAndGet(rowNumber - 1);
+    }
+
+    // is seat reserved (held seats are not), invalid positions count as not reserved
+    public boolean isReserved(int rowNumber, int seatNumber) {
+        if (!isValidPosition(rowNumber, seatNumber)) {
+            return false;
+        }
+        int word = wordIndex(rowNumber, seatNumber);
+        return ((this.reservedBits.get(word) & ~this.holds.heldWord(word)) & bitMask(seatNumber)) != 0;
+    }
+
+    // seat object for display, created from the bitset (changes to it do not change the theatre)
+    public Seat getSeat(int rowNumber, int seatNumber) {
+        if (!isValidPosition(rowNumber, seatNumber)) {
+            throw new IndexOutOfBoundsException("Invalid seat position: row " + rowNumber + ", seat " + seatNumber);
+        }
+        return new Seat(rowNumber, seatNumber, isReserved(rowNumber, seatNumber), isHeld(rowNumber, seatNumber));
+    }
+
+    // CAS loop setting all bits of mask, fails (changes nothing) if any of them is already set
+    boolean setBits(int word, long mask) {
+        while (true) {
+            long current = this.reservedBits.get(word);
+            if ((current & mask) != 0) return false;
+            if (this.reservedBits.compareAndSet(word, current, current | mask)) {
+                countTaken(word / this.wordsPerRow, Long.bitCount(mask));
+                return true;
+            }
+        }
+    }
+
+    // CAS loop clearing all bits of mask, fails (changes nothing) if any of them is not set
+    boolean clearBits(int word, long mask) {
+        while (true) {
+            long current = this.reservedBits.get(word);
+            if ((current & mask) != mask) return false;
+            if (this.reservedBits.compareAndSet(word, current, current & ~mask)) {
+                countTaken(word / this.wordsPerRow, -Long.bitCount(mask));
+                return true;
+            }
+        }
+    }
+
+    // new row version without a change of the taken bits (hold state), charts and snapshots redraw the row
+    void rowChanged(int rowNumber) {
+        this.rowVersions.incrementAndGet(rowNumber - 1);
+    }
+
+    // after a successful CAS: new row version and counters
+    private void countTaken(int row, int delta) {
+        this.rowVersions.incrementAndGet(row);
+        this.rowTaken.addAndGet(row, delta);
+        this.totalTaken.add(delta);
+    }
+
+    // lock stripe of a row
+    ReentrantLock rowLock(int rowNumber) {
+        return this.rowLocks[(rowNumber - 1) % this.rowLocks.length];
+    }
+
+    // index of the word holding the seat bit
+    int wordIndex(int rowNumber, int seatNumber) {
+        return (rowNumber - 1) * this.wordsPerRow + ((seatNumber - 1) >>> 6);
+    }
+
+    // mask of the seat bit inside its word (shift uses the lowest 6 bits only)
+    static long bitMask(int seatNumber) {
+        return 1L << (seatNumber - 1);
+    }
+
+    // mask of the seats fromSeat..toSeat (inclusive), both in the same word
+    private static long rangeMask(int fromSeat, int toSeat) {
+        long upTo = (toSeat & 63) == 0 ? -1L : (1L << (toSeat & 63)) - 1;
+        return upTo & (-1L << ((fromSeat - 1) & 63));
+    }
+
+    // overload find nearby available seats method without bounds
+    public List<Seat> findNearbyAvailableSeats(int preferredRow, int preferredColumn) {
+        return findNearbyAvailableSeats(preferredRow, preferredColumn, 1);
+    }
+
+    // find nearest available seats, returns the free seats in the (2 * distance + 1) square around the
+    // preferred seat, nearest first
+    public List<Seat> findNearbyAvailableSeats(int preferredRow, int preferredColumn, int distance) {
+        return findNearestSeats(preferredRow, preferredColumn, Integer.MAX_VALUE, Math.max(0, distance));
+    }
+
+    // the count free seats nearest to the preferred seat (any distance), nearest first
+    public List<Seat> findNearestAvailableSeats(int preferredRow, int preferredColumn, int count) {
+        return findNearestSeats(preferredRow, preferredColumn, count, Integer.MAX_VALUE);
+    }
+
+    // best-first search over the row bitsets, the preferred seat itself is skipped (it is taken anyway)
+    // distance = squared euclidean distance in seats, ties go to the lower row and then the lower seat
+    // every row has two cursors, the nearest free seat to the left and to the right of the preferred column,
+    // found with a bit scan over the row words; a popped cursor moves on to the next free seat in its direction
+    // rows are added outwards from the preferred row only while they can still beat the best candidate,
+    // so the work depends on the seats returned and not on the size of the theatre
+    private List<Seat> findNearestSeats(int preferredRow, int preferredColumn, int count, int maxDistance) {
+        List<Seat> seats = new ArrayList<>();
+        if (count < 1 || !isValidPosition(preferredRow, preferredColumn)) {
+            return seats;
+        }
+
+        int minSeat = (int) Math.max(1, (long) preferredColumn - maxDistance);
+        int maxSeat = (int) Math.min(this.seatsPerRow, (long) preferredColumn + maxDistance);
+        int maxRowDistance = Math.min(maxDistance, Math.max(preferredRow - 1, this.numberOfRows - preferredRow));
+        PriorityQueue<SeatCandidate> candidates = new PriorityQueue<>();
+
+        int rowDistance = 0;
+        while (seats.size() < count) {
+            while (rowDistance <= maxRowDistance
+                    && (candidates.isEmpty() || (long) rowDistance * rowDistance <= candidates.peek().distance)) {
+                addRowCandidates(candidates, preferredRow - rowDistance, preferredRow, preferredColumn, minSeat, maxSeat);
+                if (rowDistance > 0) {
+                    addRowCandidates(candidates, preferredRow + rowDistance, preferredRow, preferredColumn, minSeat, maxSeat);
+                }
+                rowDistance++;
+            }
+            if (candidates.isEmpty()) break;
+
+            SeatCandidate nearest = candidates.poll();
+            seats.add(new Seat(nearest.row, nearest.seat));
+            int next = nearest.direction > 0
+                ? nextFreeSeat(nearest.row, nearest.seat + 1)
+                : previousFreeSeat(nearest.row, nearest.seat - 1);
+            addCandidate(candidates, nearest.row, next, nearest.direction, preferredRow, preferredColumn, minSeat, maxSeat);
+        }
+        return seats;
+    }
+
+    // left and right cursor of one row
+    private void addRowCandidates(PriorityQueue<SeatCandidate> candidates, int row, int preferredRow, int preferredColumn,
+                                  int minSeat, int maxSeat) {
+        if (row < 1 || row > this.numberOfRows) return;
+        int right = nextFreeSeat(row, row == preferredRow ? preferredColumn + 1 : preferredColumn);
+        int left = previousFreeSeat(row, preferredColumn - 1);
+        addCandidate(candidates, row, right, 1, preferredRow, preferredColumn, minSeat, maxSeat);
+        addCandidate(candidates, row, left, -1, preferredRow, preferredColumn, minSeat, maxSeat);
+    }
+
+    private static void addCandidate(PriorityQueue<SeatCandidate> candidates, int row, int seat, int direction,
+                                     int preferredRow, int preferredColumn, int minSeat, int maxSeat) {
+        if (seat >= minSeat && seat <= maxSeat) {
+            long rowDistance = row - preferredRow;
+            long seatDistance = seat - preferredColumn;
+            candidates.add(new SeatCandidate(row, seat, direction, rowDistance * rowDistance + seatDistance * seatDistance));
+        }
+    }
+
+    // cursor of the nearest seat search
+    private static class SeatCandidate implements Comparable<SeatCandidate> {
+        private final int row;
+        private final int seat;
+        private final int direction;
+        private final long distance;
+
+        SeatCandidate(int row, int seat, int direction, long distance) {
+            this.row = row;
+            this.seat = seat;
+            this.direction = direction;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(SeatCandidate other) {
+            if (this.distance != other.distance) return Long.compare(this.distance, other.distance);
+            if (this.row != other.row) return Integer.compare(this.row, other.row);
+            return Integer.compare(this.seat, other.seat);
+        }
+    }
+
+    // private mathod to ensure order of values, swap if needed
+    private void ensureOrder(int[] values) {
+        if (values[0] > values[1]) {
+            int temp = values[0];
+            values[0] = values[1];
+            values[1] = temp;
+        }
+    }
+
+    // overload get seating chart method without bounds
+    public String getSeatingChart() {
+        return getSeatingChart(1, this.numberOfRows, 1, this.seatsPerRow);
+    }
+    
+    // get seating chart method with bounds
+    public String getSeatingChart(int beginRow, int endRow, int beginSeat, int endSeat) {
+
+        // validate and adjust bounds
+        int startRow = Math.max(1, Math.min(beginRow, numberOfRows));
+        int stopRow = Math.max(1, Math.min(endRow, numberOfRows));
+        int startSeat = Math.max(1, Math.min(beginSeat, seatsPerRow));
+        int stopSeat = Math.max(1, Math.min(endSeat, seatsPerRow));
+        
+        // ensure start <= stop for both rows and seats
+        ensureOrder(new int[]{startRow, stopRow});
+        ensureOrder(new int[]{startSeat, stopSeat});
+
+        // one renderer per theatre, it keeps the unchanged rows from the last chart
+        synchronized (this) {
+            if (this.chartRenderer == null) {
+                this.chartRenderer = new SeatingChartRenderer(this);
+            }
+            return this.chartRenderer.render(startRow, stopRow, startSeat, stopSeat);
+        }
+    }
+
+    // valid position checker, helper method
+    public boolean isValidPosition(int rowNumber, int seatNumber) {
+        return rowNumber > 0 && rowNumber <= this.numberOfRows && seatNumber > 0 && seatNumber <= this.seatsPerRow;
+    }
+ 
+}
@@ -1,6 +1,9 @@
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 class Node<T> {
     // data and next fields are made private in order to encapsulate
@@ -33,15 +36,19 @@ class Node<T> {
     }
 }
 
-class SingleLinkedList<T> {
-    // kept only head and size, I do not think we need tail at all
+class SingleLinkedList<T> implements Iterable<T> {
+    // head, tail and size, the tail makes appending O(1) (without it every append walked the whole list)
     // also these fields are private to encapsulate the data, accessing them only through methods
     private Node<T> head;
+    private Node<T> tail;
     private int size;
+    // number of structural changes, so a cursor notices changes made around it
+    private int modCount;
 
-    // constructor, initializes head to null and size to 0
+    // constructor, initializes head and tail to null and size to 0
     public SingleLinkedList() {
         this.head = null;
+        this.tail = null;
         this.size = 0;
     }
     
@@ -72,6 +79,11 @@ class SingleLinkedList<T> {
         // validate the position, if it is out of bounds, throw an exception
         this.validatePosition(nodePosition);
 
+        // the last node is known directly
+        if (nodePosition == this.size - 1) {
+            return this.tail;
+        }
+
         // if position is valid, go through the list to get the node at nodePosition
         Node<T> currentNode = this.head;
         for (int i = 0; i < nodePosition; i++) {
@@ -93,17 +105,22 @@ class SingleLinkedList<T> {
             newNode.setNext(this.head);
             this.head = newNode;
         } else {
+            // getNode(size - 1) is the tail, so appending does not walk the list
             Node<T> prevNode = getNode(nodePosition - 1);
             newNode.setNext(prevNode.getNext());
             prevNode.setNext(newNode);
         }
+        if (nodePosition == this.size) {
+            this.tail = newNode;
+        }
 
         // increment the size of the list
         this.size++;
+        this.modCount++;
    
     }
 
-    // insert new node at the end of the list
+    // insert new node at the end of the list, O(1)
     public void addNode(T nodeValue) {
         insertNodeAtPosition(nodeValue, this.size);
     }
@@ -118,18 +135,25 @@ class SingleLinkedList<T> {
             // deleting head node
             Node<T> toDelete = head;
             this.head = toDelete.getNext();
+            if (toDelete == this.tail) {
+                this.tail = null;
+            }
             // help garbage collector by setting next of toDelete to null, not really needed I guess
             toDelete.setNext(null);
         } else {
             Node<T> prevNode = getNode(nodePosition - 1);
             Node<T> toDelete = prevNode.getNext();
             prevNode.setNext(toDelete.getNext());
+            if (toDelete == this.tail) {
+                this.tail = prevNode;
+            }
             // help garbage collector by setting next of toDelete to null, not really needed I guess
             toDelete.setNext(null); 
         }
 
         // decrement the size of the list
         this.size--;
+        this.modCount++;
     }
 
     // traverse the list and print the data of each node
@@ -139,19 +163,20 @@ class SingleLinkedList<T> {
             return "List is empty";
         }
 
-        String result = "List (size: " + size + "): ";
+        // one StringBuilder, adding to a String copied the whole text for every node
+        StringBuilder result = new StringBuilder("List (size: ").append(size).append("): ");
         Node<T> currentNode = head;
 
         for (int i = 0; i < size; i++) {
-            result += "[" + i + "]:" + currentNode.getData();
+            result.append('[').append(i).append("]:").append(currentNode.getData());
             currentNode = currentNode.getNext();
             if (i < size - 1) {
-                result += " -> ";
+                result.append(" -> ");
             }
         }
 
         // returning string representation of the list
-        return result;
+        return result.toString();
     }
 
     // search for all positions where nodeValue appears, return an array of positions (0-based)
@@ -181,6 +206,113 @@ class SingleLinkedList<T> {
         return result;
     }
 
+    // iterator over the values from head to tail (for-each loops), remove() is supported
+    @Override
+    public Iterator<T> iterator() {
+        return cursor();
+    }
+
+    // cursor before the first node
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // forward cursor (like a ListIterator that only goes forward), it sits between two nodes
+    // next() steps over a node, add() inserts at the cursor, remove() and set() change the node next() returned
+    // all of these are O(1), the cursor keeps the node before it and the node before the last returned one
+    // changing the list other than through this cursor makes it throw ConcurrentModificationException
+    public class Cursor implements Iterator<T> {
+        private Node<T> previous;
+        private Node<T> nextNode = head;
+        // node returned by the last next() and the node before it, null after add() or remove()
+        private Node<T> lastReturned;
+        private Node<T> beforeLastReturned;
+        private int nextPosition;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return this.nextNode != null;
+        }
+
+        @Override
+        public T next() {
+            checkForChanges();
+            if (this.nextNode == null) {
+                throw new NoSuchElementException("No node at position " + this.nextPosition);
+            }
+            this.beforeLastReturned = this.previous;
+            this.lastReturned = this.nextNode;
+            this.previous = this.nextNode;
+            this.nextNode = this.nextNode.getNext();
+            this.nextPosition++;
+            return this.lastReturned.getData();
+        }
+
+        // position of the node next() would return (0-based)
+        public int nextPosition() {
+            return this.nextPosition;
+        }
+
+        // delete the node returned by the last next()
+        @Override
+        public void remove() {
+            checkForChanges();
+            if (this.lastReturned == null) {
+                throw new IllegalStateException("next() has not been called since the last add or remove");
+            }
+            if (this.beforeLastReturned == null) {
+                head = this.nextNode;
+            } else {
+                this.beforeLastReturned.setNext(this.nextNode);
+            }
+            if (tail == this.lastReturned) {
+                tail = this.beforeLastReturned;
+            }
+            this.lastReturned.setNext(null);
+            this.previous = this.beforeLastReturned;
+            this.lastReturned = null;
+            this.nextPosition--;
+            size--;
+            this.expectedModCount = ++modCount;
+        }
+
+        // insert a new node at the cursor (before the node next() would return), the cursor moves past it
+        public void add(T nodeValue) {
+            checkForChanges();
+            Node<T> newNode = new Node<>(nodeValue);
+            newNode.setNext(this.nextNode);
+            if (this.previous == null) {
+                head = newNode;
+            } else {
+                this.previous.setNext(newNode);
+            }
+            if (this.nextNode == null) {
+                tail = newNode;
+            }
+            this.previous = newNode;
+            this.lastReturned = null;
+            this.nextPosition++;
+            size++;
+            this.expectedModCount = ++modCount;
+        }
+
+        // replace the data of the node returned by the last next()
+        public void set(T nodeValue) {
+            checkForChanges();
+            if (this.lastReturned == null) {
+                throw new IllegalStateException("next() has not been called since the last add or remove");
+            }
+            this.lastReturned.setData(nodeValue);
+        }
+
+        private void checkForChanges() {
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
 }
 
 public class SingleLinkedListApp {
@@ -278,6 +410,36 @@ public class SingleLinkedListApp {
             System.out.println("\n16. Caught expected exception on getNode -> " + ex.getMessage());
         }
 
+        // 17. Cursor: insert 'X' after every 'B' and delete every 'D', in one pass
+        list.addNode("D");
+        Iterator<String> plain = list.iterator();
+        SingleLinkedList<String>.Cursor cursor = list.cursor();
+        while (cursor.hasNext()) {
+            String value = cursor.next();
+            if ("B".equals(value)) {
+                cursor.add("X");
+            } else if ("D".equals(value)) {
+                cursor.remove();
+            }
+        }
+        System.out.println("\n17. After cursor pass (X after B, D removed):");
+        System.out.println(list.traverseList());
+
+        // 18. Test: the older iterator notices the changes
+        try {
+            plain.next();
+        } catch (ConcurrentModificationException ex) {
+            System.out.println("\n18. Caught expected exception on stale iterator -> " + ex.getClass().getSimpleName());
+        }
+
+        // 19. For-each and append after the cursor pass (tail is still right)
+        list.addNode("F");
+        System.out.print("\n19. For-each after adding 'F':");
+        for (String value : list) {
+            System.out.print(" " + value);
+        }
+        System.out.println();
+
         System.out.println("\n=== The End ===\n");
 
 
@@ -0,0 +1,99 @@
+// build and scan times of SingleLinkedList at growing sizes, ns per element must stay flat (linear work)
+//  - build: addNode n times (O(1) each with the tail)
+//  - scan: for-each over all values (cursor)
+//  - search: searchNode for a value that is in every 100th node
+//  - cursor edit: one pass that inserts after every 10th node and removes every 10th node
+// the old positional style (getNode(i) in a loop, O(n) per call) is timed on small sizes for comparison
+// the results are checked against the sum and the number of 99s counted while building
+// usage: java -Xmx2g SingleLinkedListBenchmark [max size, at least 8]
+public class SingleLinkedListBenchmark {
+
+    // filled in by build
+    private static long builtSum;
+    private static int builtNines;
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        if (maxSize < 8) {
+            throw new IllegalArgumentException("Max size must be at least 8: " + maxSize);
+        }
+
+        System.out.println("==> Linear operations (ns per element)");
+        System.out.printf("%12s %10s %10s %10s %12s%n", "size", "build", "scan", "search", "cursor edit");
+        // maxSize / 8, / 4, / 2 and maxSize itself
+        for (int shift = 3; shift >= 0; shift--) {
+            run(maxSize >> shift);
+        }
+
+        System.out.println("\n==> Positional loop, getNode(i) for every i (ns per element, grows with the size)");
+        System.out.printf("%12s %10s%n", "size", "getNode");
+        for (int size = 5_000; size <= 40_000; size *= 2) {
+            SingleLinkedList<Integer> list = build(size);
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += list.getNode(i).getData();
+            }
+            long nanos = System.nanoTime() - start;
+            if (sum != builtSum) {
+                throw new IllegalStateException("Unexpected sum at size " + size);
+            }
+            System.out.printf("%,12d %10.1f%n", size, (double) nanos / size);
+        }
+    }
+
+    private static void run(int size) {
+        long start = System.nanoTime();
+        SingleLinkedList<Integer> list = build(size);
+        long build = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long sum = 0;
+        for (Integer value : list) {
+            sum += value;
+        }
+        long scan = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = list.searchNode(99).length;
+        long search = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        SingleLinkedList<Integer>.Cursor cursor = list.cursor();
+        int position = 0;
+        int expectedSize = size;
+        while (cursor.hasNext()) {
+            cursor.next();
+            if (position % 10 == 0) {
+                cursor.remove();
+                expectedSize--;
+            } else if (position % 10 == 5) {
+                cursor.add(-1);
+                expectedSize++;
+            }
+            position++;
+        }
+        long edit = System.nanoTime() - start;
+
+        if (found != builtNines || list.getSize() != expectedSize || sum != builtSum) {
+            throw new IllegalStateException("Unexpected result at size " + size);
+        }
+        System.out.printf("%,12d %10.1f %10.1f %10.1f %12.1f%n", size,
+            (double) build / size, (double) scan / size, (double) search / size, (double) edit / size);
+    }
+
+    // values 0..99 again and again (cached Integers, so the list itself is what is measured),
+    // their sum and number of 99s go to builtSum and builtNines
+    private static SingleLinkedList<Integer> build(int size) {
+        SingleLinkedList<Integer> list = new SingleLinkedList<>();
+        builtSum = 0;
+        builtNines = 0;
+        for (int i = 0; i < size; i++) {
+            int value = i % 100;
+            list.addNode(value);
+            builtSum += value;
+            if (value == 99) builtNines++;
+        }
+        return list;
+    }
+}
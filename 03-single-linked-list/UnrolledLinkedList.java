@@ -0,0 +1,277 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// unrolled linked list: the same operations as SingleLinkedList, but every node (block) holds up to
+// blockCapacity values in an array, so there is one object header and one next pointer per block instead of
+// per value, and a scan reads the values of a block one after another instead of chasing a pointer each time
+//  - a full block is split into two half full blocks before an insert
+//  - a block that drops below a quarter full after a delete is merged with the next block if they fit into
+//    three quarters of a block together, else it takes values over from the next block until both are about
+//    even, so blocks stay at least a quarter full (except a single or last block)
+// positions are found by skipping whole blocks (O(n / blockCapacity)), appending uses the tail block (O(1))
+public class UnrolledLinkedList<T> implements Iterable<T> {
+
+    public static final int DEFAULT_BLOCK_CAPACITY = 64;
+    public static final int MIN_BLOCK_CAPACITY = 32;
+    public static final int MAX_BLOCK_CAPACITY = 128;
+
+    private final int blockCapacity;
+    private Block head;
+    private Block tail;
+    private int size;
+
+    // one node of the list, values[0 .. count - 1] are in use
+    private class Block {
+        private Object[] values = new Object[blockCapacity];
+        private int count;
+        private Block next;
+    }
+
+    // constructor with the default block capacity
+    public UnrolledLinkedList() {
+        this(DEFAULT_BLOCK_CAPACITY);
+    }
+
+    // constructor, blockCapacity values per block (32 .. 128)
+    public UnrolledLinkedList(int blockCapacity) {
+        if (blockCapacity < MIN_BLOCK_CAPACITY || blockCapacity > MAX_BLOCK_CAPACITY) {
+            throw new IllegalArgumentException("Invalid block capacity: " + blockCapacity
+                + " (" + MIN_BLOCK_CAPACITY + " .. " + MAX_BLOCK_CAPACITY + ")");
+        }
+        this.blockCapacity = blockCapacity;
+    }
+
+    // same checks and messages as SingleLinkedList
+    private void validatePosition(int nodePosition, boolean forInsertion) {
+        if ((forInsertion && (nodePosition < 0 || nodePosition > size))
+                || (!forInsertion && (nodePosition < 0 || nodePosition >= size))) {
+            throw new IndexOutOfBoundsException("Invalid "
+                + (forInsertion ? "insert " : "") + "position: " + nodePosition);
+        }
+    }
+
+    // list size getter
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getBlockCapacity() {
+        return this.blockCapacity;
+    }
+
+    // value at a position (0-based), there are no per value nodes to hand out
+    @SuppressWarnings("unchecked")
+    public T getNode(int nodePosition) {
+        validatePosition(nodePosition, false);
+        if (nodePosition >= this.size - this.tail.count) {
+            return (T) this.tail.values[nodePosition - (this.size - this.tail.count)];
+        }
+        Block block = this.head;
+        int offset = nodePosition;
+        while (offset >= block.count) {
+            offset -= block.count;
+            block = block.next;
+        }
+        return (T) block.values[offset];
+    }
+
+    // insert a value at a position (0-based)
+    public void insertNodeAtPosition(T nodeValue, int nodePosition) {
+        validatePosition(nodePosition, true);
+
+        if (this.head == null) {
+            this.head = new Block();
+            this.tail = this.head;
+        }
+
+        // the block to insert into, at the end of a block when the position is right after it
+        Block block;
+        int offset;
+        if (nodePosition >= this.size - this.tail.count) {
+            block = this.tail;
+            offset = nodePosition - (this.size - this.tail.count);
+        } else {
+            block = this.head;
+            offset = nodePosition;
+            while (offset > block.count) {
+                offset -= block.count;
+                block = block.next;
+            }
+        }
+
+        if (block.count == this.blockCapacity) {
+            // split: the upper half moves to a new block after this one
+            Block upper = split(block);
+            if (offset > block.count) {
+                offset -= block.count;
+                block = upper;
+            }
+        }
+        System.arraycopy(block.values, offset, block.values, offset + 1, block.count - offset);
+        block.values[offset] = nodeValue;
+        block.count++;
+        this.size++;
+    }
+
+    // insert a value at the end of the list, O(1)
+    public void addNode(T nodeValue) {
+        insertNodeAtPosition(nodeValue, this.size);
+    }
+
+    // delete the value at a position (0-based)
+    public void deleteNode(int nodePosition) {
+        validatePosition(nodePosition, false);
+
+        Block previous = null;
+        Block block = this.head;
+        int offset = nodePosition;
+        while (offset >= block.count) {
+            offset -= block.count;
+            previous = block;
+            block = block.next;
+        }
+
+        System.arraycopy(block.values, offset + 1, block.values, offset, block.count - offset - 1);
+        block.values[--block.count] = null;
+        this.size--;
+
+        if (block.count == 0) {
+            unlink(previous, block);
+        } else if (block.count < this.blockCapacity / 4 && block.next != null) {
+            refill(block);
+        }
+    }
+
+    // traverse the list, same text as SingleLinkedList.traverseList
+    public String traverseList() {
+        if (this.size == 0) {
+            return "List is empty";
+        }
+
+        StringBuilder result = new StringBuilder("List (size: ").append(this.size).append("): ");
+        int i = 0;
+        for (Block block = this.head; block != null; block = block.next) {
+            for (int j = 0; j < block.count; j++, i++) {
+                result.append('[').append(i).append("]:").append(block.values[j]);
+                if (i < this.size - 1) {
+                    result.append(" -> ");
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    // all positions (0-based) of nodeValue, empty array if not found
+    public int[] searchNode(T nodeValue) {
+        List<Integer> positions = new ArrayList<>();
+        int i = 0;
+        for (Block block = this.head; block != null; block = block.next) {
+            Object[] values = block.values;
+            for (int j = 0; j < block.count; j++, i++) {
+                if ((nodeValue == null && values[j] == null)
+                        || (nodeValue != null && nodeValue.equals(values[j]))) {
+                    positions.add(i);
+                }
+            }
+        }
+
+        int[] result = new int[positions.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = positions.get(k);
+        }
+        return result;
+    }
+
+    // iterator over the values from head to tail (for-each loops)
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Block block = head;
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                return this.block != null && this.offset < this.block.count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T value = (T) this.block.values[this.offset++];
+                if (this.offset == this.block.count) {
+                    this.block = this.block.next;
+                    this.offset = 0;
+                }
+                return value;
+            }
+        };
+    }
+
+    // number of blocks (for the benchmark)
+    int getBlockCount() {
+        int blocks = 0;
+        for (Block block = this.head; block != null; block = block.next) {
+            blocks++;
+        }
+        return blocks;
+    }
+
+    // ================ block maintenance ================
+    // move the upper half of a full block into a new block after it, returns the new block
+    private Block split(Block block) {
+        Block upper = new Block();
+        int keep = block.count / 2;
+        upper.count = block.count - keep;
+        System.arraycopy(block.values, keep, upper.values, 0, upper.count);
+        Arrays.fill(block.values, keep, block.count, null);
+        block.count = keep;
+
+        upper.next = block.next;
+        block.next = upper;
+        if (this.tail == block) {
+            this.tail = upper;
+        }
+        return upper;
+    }
+
+    // an empty block leaves the list (unless it is the only one)
+    private void unlink(Block previous, Block block) {
+        if (previous == null && block.next == null) {
+            return;
+        }
+        if (previous == null) {
+            this.head = block.next;
+        } else {
+            previous.next = block.next;
+        }
+        if (this.tail == block) {
+            this.tail = previous;
+        }
+    }
+
+    // block is under a quarter full: merge the next block into it, or even out with the next block
+    private void refill(Block block) {
+        Block next = block.next;
+        if (block.count + next.count <= this.blockCapacity * 3 / 4) {
+            System.arraycopy(next.values, 0, block.values, block.count, next.count);
+            block.count += next.count;
+            block.next = next.next;
+            if (this.tail == next) {
+                this.tail = block;
+            }
+        } else {
+            int moved = (next.count - block.count) / 2;
+            System.arraycopy(next.values, 0, block.values, block.count, moved);
+            System.arraycopy(next.values, moved, next.values, 0, next.count - moved);
+            Arrays.fill(next.values, next.count - moved, next.count, null);
+            block.count += moved;
+            next.count -= moved;
+        }
+    }
+}
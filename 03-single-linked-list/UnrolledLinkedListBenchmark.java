@@ -0,0 +1,134 @@
+// UnrolledLinkedList (block capacities 32, 64, 128) against the node per value SingleLinkedList
+//  - memory: heap used per element, lists of 1M cached Integers (the values themselves are not counted)
+//  - scan: for-each over all values and searchNode, ns per element
+//  - middle insert: insertNodeAtPosition(value, size / 2) on a list of 100k values, ns per insert
+//    (both walk to the position, the node list one node at a time, the unrolled list one block at a time)
+// the results are checked against the sum and the number of 99s counted while building
+// usage: java -Xmx2g UnrolledLinkedListBenchmark [size]
+public class UnrolledLinkedListBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        int insertSize = 100_000;
+        int inserts = 2_000;
+
+        System.out.printf("==> %,d values, middle inserts into %,d values%n", size, insertSize);
+        System.out.printf("%-22s %12s %10s %10s %14s%n", "list", "bytes/elem", "scan", "search", "middle insert");
+
+        // a few rounds to warm up, the last one is printed
+        for (int round = 1; round <= ROUNDS; round++) {
+            boolean print = round == ROUNDS;
+            runNodeList(size, insertSize, inserts, print);
+            for (int capacity = UnrolledLinkedList.MIN_BLOCK_CAPACITY; capacity <= UnrolledLinkedList.MAX_BLOCK_CAPACITY; capacity *= 2) {
+                runUnrolled(capacity, size, insertSize, inserts, print);
+            }
+        }
+    }
+
+    private static void runNodeList(int size, int insertSize, int inserts, boolean print) {
+        long before = usedHeap();
+        SingleLinkedList<Integer> list = new SingleLinkedList<>();
+        long expectedSum = 0;
+        int expectedNines = 0;
+        for (int i = 0; i < size; i++) {
+            int value = i % 100;
+            list.addNode(value);
+            expectedSum += value;
+            if (value == 99) expectedNines++;
+        }
+        double bytes = (double) (usedHeap() - before) / size;
+
+        long start = System.nanoTime();
+        long sum = 0;
+        for (Integer value : list) {
+            sum += value;
+        }
+        long scan = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = list.searchNode(99).length;
+        long search = System.nanoTime() - start;
+        check(sum, expectedSum, found, expectedNines, size);
+        list = null;
+
+        SingleLinkedList<Integer> small = new SingleLinkedList<>();
+        for (int i = 0; i < insertSize; i++) {
+            small.addNode(i % 100);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < inserts; i++) {
+            small.insertNodeAtPosition(-1, small.getSize() / 2);
+        }
+        long insert = System.nanoTime() - start;
+
+        if (print) {
+            print("SingleLinkedList", bytes, scan, search, size, insert, inserts);
+        }
+    }
+
+    private static void runUnrolled(int capacity, int size, int insertSize, int inserts, boolean print) {
+        long before = usedHeap();
+        UnrolledLinkedList<Integer> list = new UnrolledLinkedList<>(capacity);
+        long expectedSum = 0;
+        int expectedNines = 0;
+        for (int i = 0; i < size; i++) {
+            int value = i % 100;
+            list.addNode(value);
+            expectedSum += value;
+            if (value == 99) expectedNines++;
+        }
+        double bytes = (double) (usedHeap() - before) / size;
+
+        long start = System.nanoTime();
+        long sum = 0;
+        for (Integer value : list) {
+            sum += value;
+        }
+        long scan = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = list.searchNode(99).length;
+        long search = System.nanoTime() - start;
+        check(sum, expectedSum, found, expectedNines, size);
+        list = null;
+
+        UnrolledLinkedList<Integer> small = new UnrolledLinkedList<>(capacity);
+        for (int i = 0; i < insertSize; i++) {
+            small.addNode(i % 100);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < inserts; i++) {
+            small.insertNodeAtPosition(-1, small.getSize() / 2);
+        }
+        long insert = System.nanoTime() - start;
+
+        if (print) {
+            print("Unrolled (" + capacity + ")", bytes, scan, search, size, insert, inserts);
+        }
+    }
+
+    private static void check(long sum, long expectedSum, int found, int expectedNines, int size) {
+        if (found != expectedNines || sum != expectedSum) {
+            throw new IllegalStateException("Unexpected result at size " + size);
+        }
+    }
+
+    private static void print(String name, double bytes, long scan, long search, int size, long insert, int inserts) {
+        System.out.printf("%-22s %12.1f %10.1f %10.1f %14.1f%n", name, bytes,
+            (double) scan / size, (double) search / size, (double) insert / inserts);
+    }
+
+    // heap in use after a few collections
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}